@@ -60,15 +60,12 @@ public class CreditSupply {
 	public void step() {
 	    interestRate = Model.bank.getMortgageInterestRate();
         double oldTotalCredit = totalOOCredit + totalBTLCredit;
-        totalOOCredit = 0.0;
-        totalBTLCredit = 0.0;
-        for(MortgageAgreement m : Model.bank.mortgages) {
-        	if(m.isBuyToLet) {
-            	totalBTLCredit += m.principal;
-        	} else {
-        		totalOOCredit += m.principal;
-        	}
+        // Credit totals are kept incrementally by the bank, and recomputed from all mortgages only every few months
+        if (config.CREDIT_RECONCILIATION_PERIOD > 0 && Model.getTime()%config.CREDIT_RECONCILIATION_PERIOD == 0) {
+            Model.bank.reconcileCredit();
         }
+        totalOOCredit = Model.bank.getTotalOOCredit();
+        totalBTLCredit = Model.bank.getTotalBTLCredit();
         if (oldTotalCredit > 0.0) {
             netCreditGrowth = (totalOOCredit + totalBTLCredit - oldTotalCredit)/oldTotalCredit;
         } else {
@@ -2,8 +2,13 @@ package collectors;
 
 import housing.Config;
 import housing.Household;
+import housing.HouseholdKernels;
+import housing.HouseholdTable;
+import housing.Model;
 import housing.Region;
 
+import java.util.Arrays;
+
 /**************************************************************************************************
  * Class to collect regional household statistics
  *
@@ -21,6 +26,22 @@ public class RegionalHouseholdStats {
     private Config  config; // Private field to receive the Model's configuration parameters object
     private Region  region;
 
+    // Fields for gathering household variables into arrays, to be summed by array kernels
+    private static final int    ACTIVE_BTL = 0; // Income groups
+    private static final int    OWNER_OCCUPIER = 1;
+    private static final int    RENTING = 2;
+    private static final int    HOMELESS = 3;
+    private HouseholdKernels    kernels;
+    private int []              incomeGroups = new int[0];
+    private double []           incomes = new double[0];
+    private double []           commutingFees = new double[0];
+    private double []           commutingCosts = new double[0];
+    private double []           incomeSums = new double[4];
+    private int []              jobRegionCounts = new int[0]; // Households working at each region, if using bitsets
+    private double []           jobRegionIncomes = new double[0]; // Their employment incomes, if using bitsets
+    private double []           rentsByQuality = new double[0]; // Rents paid on homes of each quality, if using bitsets
+    private double []           commutingSums = new double[2];
+
     // Fields for counting numbers of the different types of households and household conditions
     private int     nBTL; // Number of buy-to-let (BTL) households, i.e., households with the BTL gene (includes both active and inactive)
     private int     nActiveBTL; // Number of BTL households with, at least, one BTL property
@@ -61,6 +82,7 @@ public class RegionalHouseholdStats {
     public RegionalHouseholdStats(Config config, Region region) {
         this.config = config;
         this.region = region;
+        kernels = HouseholdKernels.create(config);
     }
 
     //-------------------//
@@ -113,66 +135,155 @@ public class RegionalHouseholdStats {
         sumCommutingFees = 0.0;
         sumCommutingCost = 0.0;
         nCommuters = 0;
-        // Run through all households counting population in each type and summing over some of their variables
-        for (Household h : region.households) {
+        if (config.BITSET_HOUSEHOLD_STATS) {
+            recordFromBitsets();
+        } else {
+            recordFromHouseholds();
+        }
+        // Annualise monthly income data
+        activeBTLAnnualisedTotalIncome *= config.constants.MONTHS_IN_YEAR;
+        ownerOccupierAnnualisedTotalIncome *= config.constants.MONTHS_IN_YEAR;
+        rentingAnnualisedTotalIncome *= config.constants.MONTHS_IN_YEAR;
+        homelessAnnualisedTotalIncome *= config.constants.MONTHS_IN_YEAR;
+        // Pass number of bidders above the exponential moving average sale price to persistent variable and
+        // re-initialise to zero the counter
+        nNonBTLBidsAboveExpAvSalePrice = nNonBTLBidsAboveExpAvSalePriceCounter;
+        nBTLBidsAboveExpAvSalePrice = nBTLBidsAboveExpAvSalePriceCounter;
+        nNonBTLBidsAboveExpAvSalePriceCounter = 0;
+        nBTLBidsAboveExpAvSalePriceCounter = 0;
+    }
+
+    /**
+     * Run through all households of the region counting population in each type and gathering, for summing them later
+     * on, their incomes (by income group) and commuting fees and costs
+     */
+    private void recordFromHouseholds() {
+        int n = region.households.size();
+        if (n > commutingFees.length) {
+            incomeGroups = new int[2*n];
+            incomes = new double[2*n];
+            commutingFees = new double[2*n];
+            commutingCosts = new double[2*n];
+        }
+        int nIncomes = 0;
+        for (int i = 0; i < n; i++) {
+            Household h = region.households.get(i);
+            int incomeGroup = -1;
             if (h.behaviour.isPropertyInvestor()) {
                 ++nBTL;
                 if (h.isBankrupt()) nBTLBankruptcies += 1;
                 // Active BTL investors
                 if (h.getNProperties() > 1) {
                     ++nActiveBTL;
-                    activeBTLAnnualisedTotalIncome += h.getMonthlyGrossTotalIncome();
+                    incomeGroup = ACTIVE_BTL;
                     // Inactive BTL investors who own their house
                 } else if (h.getNProperties() == 1) {
                     ++nBTLOwnerOccupier;
-                    ownerOccupierAnnualisedTotalIncome += h.getMonthlyGrossTotalIncome();
+                    incomeGroup = OWNER_OCCUPIER;
                     // Inactive BTL investors in social housing
                 } else {
                     ++nBTLHomeless;
-                    homelessAnnualisedTotalIncome += h.getMonthlyGrossTotalIncome();
+                    incomeGroup = HOMELESS;
                 }
             } else {
                 if (h.isBankrupt()) nNonBTLBankruptcies += 1;
                 // Non-BTL investors who own their house
                 if (h.isHomeowner()) {
                     ++nNonBTLOwnerOccupier;
-                    ownerOccupierAnnualisedTotalIncome += h.getMonthlyGrossTotalIncome();
+                    incomeGroup = OWNER_OCCUPIER;
                     // Non-BTL investors renting
                 } else if (h.isRenting()) {
                     ++nRenting;
-                    rentingAnnualisedTotalIncome += h.getMonthlyGrossTotalIncome();
+                    incomeGroup = RENTING;
                     if (region.regionalHousingMarketStats.getExpAvSalePriceForQuality(h.getHome().getQuality()) > 0) {
-                        sumStockYield += h.getHousePayments().get(h.getHome()).monthlyPayment
+                        sumStockYield += h.getHome().getTenancy().monthlyPayment
                                 *config.constants.MONTHS_IN_YEAR
                                 /region.regionalHousingMarketStats.getExpAvSalePriceForQuality(h.getHome().getQuality());
                     }
                 // Non-BTL investors in social housing
                 } else if (h.isInSocialHousing()) {
                     ++nNonBTLHomeless;
-                    homelessAnnualisedTotalIncome += h.getMonthlyGrossTotalIncome();
+                    incomeGroup = HOMELESS;
                 }
             }
-            // Sum commuting fees and total commuting cost
-//            sumCommutingFees += h.getMonthlyCommutingFee(h.getHome().getRegion());
-//            sumCommutingCost += h.getMonthlyCommutingCost(h.getHome().getRegion());
-            sumCommutingFees += h.getMonthlyCommutingFee(region);
-            sumCommutingCost += h.getMonthlyCommutingCost(region);
+            if (incomeGroup >= 0) {
+                incomeGroups[nIncomes] = incomeGroup;
+                incomes[nIncomes] = h.getMonthlyGrossTotalIncome();
+                nIncomes++;
+            }
+            // Gather commuting fees and total commuting cost
+            commutingFees[i] = h.getMonthlyCommutingFee(region);
+            commutingCosts[i] = h.getMonthlyCommutingCost(region);
             // If the household does not work at the same region where it lives, add a commuter
             if (h.getJobRegion() != region) {
                 nCommuters++;
             }
         }
-        // Annualise monthly income data
-        activeBTLAnnualisedTotalIncome *= config.constants.MONTHS_IN_YEAR;
-        ownerOccupierAnnualisedTotalIncome *= config.constants.MONTHS_IN_YEAR;
-        rentingAnnualisedTotalIncome *= config.constants.MONTHS_IN_YEAR;
-        homelessAnnualisedTotalIncome *= config.constants.MONTHS_IN_YEAR;
-        // Pass number of bidders above the exponential moving average sale price to persistent variable and
-        // re-initialise to zero the counter
-        nNonBTLBidsAboveExpAvSalePrice = nNonBTLBidsAboveExpAvSalePriceCounter;
-        nBTLBidsAboveExpAvSalePrice = nBTLBidsAboveExpAvSalePriceCounter;
-        nNonBTLBidsAboveExpAvSalePriceCounter = 0;
-        nBTLBidsAboveExpAvSalePriceCounter = 0;
+        // Sum incomes by income group, and commuting fees and costs
+        Arrays.fill(incomeSums, 0.0);
+        kernels.sumByGroup(incomeGroups, incomes, nIncomes, incomeSums);
+        activeBTLAnnualisedTotalIncome = incomeSums[ACTIVE_BTL];
+        ownerOccupierAnnualisedTotalIncome = incomeSums[OWNER_OCCUPIER];
+        rentingAnnualisedTotalIncome = incomeSums[RENTING];
+        homelessAnnualisedTotalIncome = incomeSums[HOMELESS];
+        sumCommutingFees = kernels.sum(commutingFees, n);
+        sumCommutingCost = kernels.sum(commutingCosts, n);
+    }
+
+    /**
+     * Count population in each type from the bitsets of flags and regions kept by the household table, and sum incomes
+     * (by income group) over the corresponding rows. Stock yields are summed from the rents paid on homes of each
+     * quality, and commuting fees and costs from the number of households working at each region and their employment
+     * incomes, all read from table columns without visiting any household. Note that sums are added up in row order
+     * and by groups, rather than in the order of households in the region
+     */
+    private void recordFromBitsets() {
+        HouseholdTable table = Model.demographics.getHouseholdTable();
+        int id = region.getRegionID();
+        int btl = HouseholdTable.BTL_INVESTOR;
+        int owner = HouseholdTable.HOMEOWNER;
+        int renter = HouseholdTable.RENTER;
+        int multiple = HouseholdTable.MULTIPLE_PROPERTIES;
+        int bankrupt = HouseholdTable.BANKRUPT;
+        // Count population in each type, where active BTL investors are those with more than one property, inactive
+        // BTL investors owning their home have exactly one, and inactive BTL investors in social housing have none
+        nBTL = table.count(id, btl, 0);
+        nBTLBankruptcies = table.count(id, btl | bankrupt, 0);
+        nActiveBTL = table.count(id, btl | multiple, 0);
+        nBTLOwnerOccupier = table.count(id, btl | owner, multiple);
+        nBTLHomeless = table.count(id, btl, owner);
+        nNonBTLBankruptcies = table.count(id, bankrupt, btl);
+        nNonBTLOwnerOccupier = table.count(id, owner, btl);
+        nRenting = table.count(id, renter, btl);
+        nNonBTLHomeless = table.count(id, 0, btl | owner | renter);
+        nCommuters = table.countCommuters(id);
+        // Sum incomes by income group
+        activeBTLAnnualisedTotalIncome = table.sumMonthlyGrossTotalIncomes(id, btl | multiple, 0);
+        ownerOccupierAnnualisedTotalIncome = table.sumMonthlyGrossTotalIncomes(id, btl | owner, multiple)
+                + table.sumMonthlyGrossTotalIncomes(id, owner, btl);
+        rentingAnnualisedTotalIncome = table.sumMonthlyGrossTotalIncomes(id, renter, btl);
+        homelessAnnualisedTotalIncome = table.sumMonthlyGrossTotalIncomes(id, btl, owner)
+                + table.sumMonthlyGrossTotalIncomes(id, 0, btl | owner | renter);
+        // Sum stock yields of renting households, from the sums of the rents they pay on homes of each quality
+        if (rentsByQuality.length != config.N_QUALITY) rentsByQuality = new double[config.N_QUALITY];
+        table.sumMonthlyRentsByQuality(id, renter, btl, rentsByQuality);
+        for (int quality = 0; quality < config.N_QUALITY; quality++) {
+            if (region.regionalHousingMarketStats.getExpAvSalePriceForQuality(quality) > 0) {
+                sumStockYield += rentsByQuality[quality]*config.constants.MONTHS_IN_YEAR
+                        /region.regionalHousingMarketStats.getExpAvSalePriceForQuality(quality);
+            }
+        }
+        // Sum commuting fees and costs of all households living in the region, from the number of them working at each
+        // region and the sum of their employment incomes
+        int nRegions = Model.geography.getRegions().size();
+        if (jobRegionCounts.length != nRegions) {
+            jobRegionCounts = new int[nRegions];
+            jobRegionIncomes = new double[nRegions];
+        }
+        table.sumByJobRegion(id, jobRegionCounts, jobRegionIncomes);
+        Model.geography.sumMonthlyCommutingCosts(region, jobRegionCounts, jobRegionIncomes, commutingSums);
+        sumCommutingFees = commutingSums[0];
+        sumCommutingCost = commutingSums[1];
     }
 
     /**
@@ -14,6 +14,7 @@ import org.apache.commons.csv.CSVRecord;
 import utilities.BinnedData;
 import utilities.BinnedDataDouble;
 import utilities.Pdf;
+import utilities.QuantileSurface;
 
 /**************************************************************************************************
  * Class to read and work with income data before passing it to the Household class. Note that we
@@ -31,6 +32,9 @@ public class EmploymentIncome {
 	private static Config config = Model.config; // Passes the Model's configuration parameters object to a private field
 
     static private BinnedData<Pdf> lnIncomeGivenAge = loadGrossEmploymentIncomePDFGivenAge(); // Calibrated against LCFS 2012 data
+    // Lookup surface of incomes by age bin and income percentile, only used if a refinement is set
+    static private QuantileSurface incomeGivenAge = (config.CALIBRATION_LOOKUP_REFINEMENT > 0) ?
+            new QuantileSurface(lnIncomeGivenAge, config.CALIBRATION_LOOKUP_REFINEMENT) : null;
 
     //-------------------//
     //----- Methods -----//
@@ -102,9 +106,10 @@ public class EmploymentIncome {
 	}
 
     /**
-     * Find household annual gross income given age and income percentile
+     * Find the age bin used to assign incomes to households of a given age. Since incomes only depend on age through
+     * this bin, households can keep their income until their age bin changes
      */
-    static public double getAnnualGrossEmploymentIncome(double boundAge, double incomePercentile) {
+    static public int getAgeBin(double boundAge) {
         // If boundAge is below minimum age bin, then minimum age bin is assigned
         if (boundAge < lnIncomeGivenAge.getSupportLowerBound()) {
             boundAge = lnIncomeGivenAge.getSupportLowerBound();
@@ -113,8 +118,21 @@ public class EmploymentIncome {
         else if (boundAge >= lnIncomeGivenAge.getSupportUpperBound()) {
             boundAge = lnIncomeGivenAge.getSupportUpperBound() - 1e-7;
         }
-        // Assign gross annual income according to the determined boundAge
-        double income = Math.exp(lnIncomeGivenAge.getBinAt(boundAge).inverseCumulativeProbability(incomePercentile));
+        return (int)((boundAge - lnIncomeGivenAge.getSupportLowerBound())/lnIncomeGivenAge.getBinWidth());
+    }
+
+    /**
+     * Find household annual gross income given age and income percentile
+     */
+    static public double getAnnualGrossEmploymentIncome(double boundAge, double incomePercentile) {
+        int ageBin = getAgeBin(boundAge);
+        // Assign gross annual income according to the determined age bin, either exactly or from the lookup surface
+        double income;
+        if (incomeGivenAge != null) {
+            income = incomeGivenAge.getValue(ageBin, incomePercentile);
+        } else {
+            income = Math.exp(lnIncomeGivenAge.get(ageBin).inverseCumulativeProbability(incomePercentile));
+        }
         // Impose a minimum income equivalent to the minimum government annual income support
         if (income < config.GOVERNMENT_MONTHLY_INCOME_SUPPORT*config.constants.MONTHS_IN_YEAR) {
             income = config.GOVERNMENT_MONTHLY_INCOME_SUPPORT*config.constants.MONTHS_IN_YEAR;
@@ -6,11 +6,14 @@ import housing.Model;
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.HashSet;
 
 /**************************************************************************************************
  * Class to read data on transport: a matrix of commuting times, and a matrix of commuting fees
- * between the regions
+ * between the regions or, for large geographies, a sparse list of commuting neighbourhoods, with
+ * the commuting time and fee from each job region to each of its reachable home regions
  *
  * @author Adrian Carro
  *
@@ -23,10 +26,18 @@ public class Transport {
     //------------------//
 
     private static Config config = Model.config; // Passes the Model's configuration parameters object to a private field
+    // If an address is given for sparse commuting neighbourhoods, then dense matrices are not read at all
+    private static boolean isSparse = !config.DATA_COMMUTING_NEIGHBOURHOODS.isEmpty();
     // Reads and stores the matrix of commuting times between regions as a static 2D ArrayList of doubles
-	private static ArrayList<ArrayList<Double>> commutingTimeMatrix = readMatrix(config.DATA_COMMUTING_TIMES);
+	private static ArrayList<ArrayList<Double>> commutingTimeMatrix =
+            isSparse ? null : readMatrix(config.DATA_COMMUTING_TIMES);
     // Reads and stores the matrix of commuting fees between regions as a static 2D ArrayList of doubles
-    private static ArrayList<ArrayList<Double>> commutingFeeMatrix = readMatrix(config.DATA_COMMUTING_FEES);
+    private static ArrayList<ArrayList<Double>> commutingFeeMatrix =
+            isSparse ? null : readMatrix(config.DATA_COMMUTING_FEES);
+    // Reads and stores the sparse commuting neighbourhoods as a static ArrayList of {jobRegionID, homeRegionID,
+    // commuting time, commuting fee} entries
+    private static ArrayList<double []> commutingNeighbourhoods =
+            isSparse ? readNeighbourhoods(config.DATA_COMMUTING_NEIGHBOURHOODS) : null;
 
     //-------------------//
     //----- Methods -----//
@@ -60,8 +71,7 @@ public class Transport {
 				line = buffReader.readLine();
 			}
 		} catch (IOException ioe) {
-			System.out.println("Exception " + ioe + " while trying to read file '" + fileName + "'");
-			ioe.printStackTrace();
+			throw new UncheckedIOException("Exception while trying to read file '" + fileName + "'", ioe);
 		}
 		// Check that the matrix is squared
         if (matrix.size() != matrix.get(0).size()) {
@@ -71,8 +81,72 @@ public class Transport {
 		return matrix;
 	}
 
+    /**
+     * Method to read sparse commuting neighbourhoods from a file, where each line contains a job region ID, a home
+     * region ID reachable from that job region, and the commuting time (in hours) and fee (in pounds) per trip between
+     * them. Pairs of regions not listed are considered unreachable.
+     *
+     * @param fileName String with name of file (address inside source folder)
+     * @return ArrayList of {jobRegionID, homeRegionID, commuting time, commuting fee} entries
+     */
+    private static ArrayList<double []> readNeighbourhoods(String fileName) {
+        ArrayList<double []> entries = new ArrayList<>();
+        // Try-with-resources statement
+        try (BufferedReader buffReader = new BufferedReader(new FileReader(fileName))) {
+            String line = buffReader.readLine();
+            while (line != null) {
+                if (!line.trim().isEmpty() && line.charAt(0) != '#') {
+                    String [] values = line.split(",");
+                    if (values.length != 4) {
+                        System.out.println("Line '" + line + "' at " + fileName + " should contain a job region ID, a" +
+                                " home region ID, a commuting time and a commuting fee");
+                        System.exit(0);
+                    }
+                    double [] entry = new double[4];
+                    try {
+                        for (int i = 0; i < 4; i++) entry[i] = Double.parseDouble(values[i].trim());
+                    } catch (NumberFormatException nfe) {
+                        System.out.println("Exception " + nfe + " while trying to parse " + line + " for doubles");
+                        nfe.printStackTrace();
+                        System.exit(0);
+                    }
+                    entries.add(entry);
+                }
+                line = buffReader.readLine();
+            }
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Exception while trying to read file '" + fileName + "'", ioe);
+        }
+        return entries;
+    }
+
     //----- Getter/setter methods -----//
 
+    /**
+     * @return True if commuting data is given as sparse neighbourhoods, false if given as dense matrices
+     */
+    public static boolean isSparse() { return isSparse; }
+
+    public static ArrayList<double []> getCommutingNeighbourhoods(int numberOfRegions) {
+        // First check that all region IDs are coherent with the number of regions passed as input (derived from reading
+        // the population per region file), and that no pair of job and home regions is listed more than once
+        HashSet<Long> pairs = new HashSet<>();
+        for (double [] entry : commutingNeighbourhoods) {
+            if (entry[0] < 0 || entry[0] >= numberOfRegions || entry[1] < 0 || entry[1] >= numberOfRegions) {
+                System.out.println("Number of regions at population file, " + numberOfRegions +
+                        ", incoherent with region IDs " + (int)entry[0] + " and " + (int)entry[1] +
+                        " at the commuting neighbourhoods file");
+                System.exit(0);
+            }
+            if (!pairs.add((long)entry[0]*numberOfRegions + (long)entry[1])) {
+                System.out.println("Job region ID " + (int)entry[0] + " and home region ID " + (int)entry[1] +
+                        " listed more than once at the commuting neighbourhoods file");
+                System.exit(0);
+            }
+        }
+        return commutingNeighbourhoods;
+    }
+
 	public static ArrayList<ArrayList<Double>> getCommutingTimeMatrix(int numberOfRegions) {
 	    // First check if the number of regions passed as input (derived from reading the population per region file) is
         // the same as the number of regions read from the commuting times file
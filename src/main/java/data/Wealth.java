@@ -6,6 +6,7 @@ import org.apache.commons.csv.CSVRecord;
 import utilities.BinnedData;
 import utilities.BinnedDataDouble;
 import utilities.Pdf;
+import utilities.QuantileSurface;
 
 import java.io.FileReader;
 import java.io.IOException;
@@ -25,6 +26,11 @@ public class Wealth {
     //------------------//
 
     static private BinnedData<Pdf> lnWealthGivenLnIncome = loadLnWealthPDFGivenLnIncome();
+    // Lookup surface of wealth by income bin and propensity to save, only used if a refinement is set, together with
+    // the upper edges of the income bins, in (non-logarithmic) income units
+    static private QuantileSurface wealthGivenIncome = (Model.config.CALIBRATION_LOOKUP_REFINEMENT > 0) ?
+            new QuantileSurface(lnWealthGivenLnIncome, Model.config.CALIBRATION_LOOKUP_REFINEMENT) : null;
+    static private double [] incomeBinUpperEdges = getIncomeBinUpperEdges();
 
     //-------------------//
     //----- Methods -----//
@@ -95,6 +101,19 @@ public class Wealth {
 		return data;
 	}
 
+    /**
+     * Compute the upper edges of the income bins, in (non-logarithmic) income units, such that the income bin of a
+     * household can be found without computing the logarithm of its income
+     */
+    static private double [] getIncomeBinUpperEdges() {
+        double [] edges = new double[lnWealthGivenLnIncome.size()];
+        for (int i = 0; i < edges.length; i++) {
+            edges[i] = Math.exp(lnWealthGivenLnIncome.getSupportLowerBound()
+                    + (i + 1)*lnWealthGivenLnIncome.getBinWidth());
+        }
+        return edges;
+    }
+
     /**
      * Minimum bank balance each household is willing to have at the end of the month for the whole population to match
      * the wealth distribution obtained from the Wealth and Assets Survey. This desired bank balance will be then used
@@ -104,6 +123,21 @@ public class Wealth {
      * @param propensityToSave Household propensity to save
      */
     static public double getDesiredBankBalance(double annualGrossTotalIncome, double propensityToSave) {
+        // If a lookup surface is available, then find the income bin by comparing with (non-logarithmic) bin edges,
+        // with incomes below the minimum or above the maximum income bin assigned to these bins, respectively
+        if (wealthGivenIncome != null) {
+            int low = 0;
+            int high = incomeBinUpperEdges.length - 1;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (annualGrossTotalIncome >= incomeBinUpperEdges[mid]) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return wealthGivenIncome.getValue(low, propensityToSave);
+        }
         double lnAnnualGrossTotalIncome = Math.log(annualGrossTotalIncome);
         // If lnAnnualGrossTotalIncome is below minimum income bin, then minimum income bin is assigned
         if (lnAnnualGrossTotalIncome < lnWealthGivenLnIncome.getSupportLowerBound()) {
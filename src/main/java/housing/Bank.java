@@ -2,6 +2,8 @@ package housing;
 
 import java.util.HashSet;
 
+import utilities.ApproximateMath;
+
 /**************************************************************************************************
  * Class to represent a mortgage-lender (i.e. a bank or building society), whose only function is
  * to approve/decline mortgage requests, so this is where mortgage-lending policy is encoded
@@ -20,6 +22,8 @@ public class Bank {
 
     // Bank fields
     public HashSet<MortgageAgreement>	mortgages; // all unpaid mortgage contracts supplied by the bank
+    private double                      totalOOCredit; // Principal due on all non-BTL mortgages, kept incrementally
+    private double                      totalBTLCredit; // Principal due on all BTL mortgages, kept incrementally
     public double		                interestSpread; // current mortgage interest spread above base rate (monthly rate*12)
     private double                      monthlyPaymentFactor; // Monthly payment as a fraction of the principal for non-BTL mortgages
     private double                      monthlyPaymentFactorBTL; // Monthly payment as a fraction of the principal for BTL (interest-only) mortgages
@@ -41,6 +45,8 @@ public class Bank {
     private double                      firstTimeBuyerLTILimit; // Loan-To-Income internal upper limit for first-time buyer mortgages
     private double                      ownerOccupierLTILimit; // Loan-To-Income internal upper limit for owner-occupying mortgages
 
+    private MortgageQuote               loanQuote = new MortgageQuote(); // Reusable quote for loan requests
+
     //------------------------//
     //----- Constructors -----//
     //------------------------//
@@ -56,6 +62,8 @@ public class Bank {
 
 	void init() {
 		mortgages.clear();
+		totalOOCredit = 0.0;
+		totalBTLCredit = 0.0;
 		baseRate = config.BANK_INITIAL_BASE_RATE;
 		// TODO: Is this (dDemand_dInterest) a parameter? Shouldn't it depend somehow on other variables of the model?
 		dDemand_dInterest = 10*1e10;
@@ -104,6 +112,10 @@ public class Bank {
 	 * Get the interest rate on mortgages.
 	 */
 	public double getMortgageInterestRate() { return baseRate + interestSpread; }
+
+	public double getTotalOOCredit() { return totalOOCredit; }
+
+	public double getTotalBTLCredit() { return totalBTLCredit; }
 	
 
 	/**
@@ -120,7 +132,11 @@ public class Bank {
      */
 	private void recalculateMonthlyPaymentFactor() {
 		double r = getMortgageInterestRate()/config.constants.MONTHS_IN_YEAR;
-		monthlyPaymentFactor = r/(1.0 - Math.pow(1.0 + r, -config.derivedParams.N_PAYMENTS));
+		if (config.FAST_MATH) {
+			monthlyPaymentFactor = r/(1.0 - ApproximateMath.pow(1.0 + r, -config.derivedParams.N_PAYMENTS));
+		} else {
+			monthlyPaymentFactor = r/(1.0 - Math.pow(1.0 + r, -config.derivedParams.N_PAYMENTS));
+		}
         monthlyPaymentFactorBTL = r;
 	}
 
@@ -145,13 +161,26 @@ public class Bank {
 	 */
 	MortgageAgreement requestLoan(Household h, double housePrice, double desiredDownPayment, boolean isHome,
                                   House house) {
-		MortgageAgreement approval = requestApproval(h, housePrice, desiredDownPayment, isHome);
-		if(approval == null) return(null);
-		// --- if all's well, go ahead and arrange mortgage
+		if (!quote(h, housePrice, desiredDownPayment, isHome, loanQuote).approved) return null;
+		// --- if all's well, go ahead and arrange mortgage, signing a mortgage contract with the quoted terms
+		MortgageAgreement approval = new MortgageAgreement(h, !isHome);
+		approval.principal = loanQuote.principal;
+		approval.downPayment = loanQuote.downPayment;
+		approval.monthlyPayment = loanQuote.monthlyPayment;
+		approval.nPayments = loanQuote.nPayments;
+		approval.monthlyInterestRate = loanQuote.monthlyInterestRate;
+		approval.purchasePrice = loanQuote.purchasePrice;
 		supplyVal += approval.principal;
 		if(approval.principal > 0.0) {
 			mortgages.add(approval);
+			updateCredit(approval, approval.principal);
 			Model.creditSupply.recordLoan(h, approval, house);
+            // If event-driven, schedule the maturity of the mortgage, the month after its last payment, when any
+            // remaining principal is paid off and, if the house has already been sold, the debt can be closed
+            if (Model.eventCalendar != null) {
+                Model.eventCalendar.schedule(Model.getTime() + approval.nPayments + 1,
+                        EventCalendar.MORTGAGE_MATURITY, h, 0);
+            }
             if(isHome) {
                 ++nOOMortgages;
                 if(approval.principal/h.getAnnualGrossEmploymentIncome() >
@@ -164,17 +193,21 @@ public class Bank {
 	}
 
 	/**
-	 * Method to request a mortgage approval but not actually sign a mortgage contract. This is useful if you want to
-     * explore the details of the mortgage contract before deciding whether to actually go ahead and sign it.
+	 * Method to request a mortgage quote but not actually sign a mortgage contract. This is useful if you want to
+     * explore the details of the mortgage contract before deciding whether to actually go ahead and sign it. Quoted
+     * terms are written into a caller-supplied holder, which can be reused between calls, and no state of the bank is
+     * changed, such that no object is allocated and nothing needs to be undone if the household does not go ahead.
+     * Mortgages are declined if the household cannot afford the minimum down-payment, in which case the holder is
+     * marked as not approved.
 	 *
      * @param h The household requesting the mortgage
      * @param housePrice The price of the house that household h wants to buy
      * @param isHome True if household h plans to live in the house (non-BTL mortgage)
-     * @return The MortgageApproval object, or NULL if the mortgage is declined
+     * @param approval Holder where to write the quoted terms
+     * @return The same holder, with the quoted terms or marked as not approved if the mortgage is declined
 	 */
-	MortgageAgreement requestApproval(Household h, double housePrice, double desiredDownPayment,
-                                      boolean isHome) {
-		MortgageAgreement approval = new MortgageAgreement(h, !isHome);
+	MortgageQuote quote(Household h, double housePrice, double desiredDownPayment, boolean isHome,
+                        MortgageQuote approval) {
 		double r = getMortgageInterestRate()/config.constants.MONTHS_IN_YEAR; // monthly interest rate
 		double lti_principal, affordable_principal, icr_principal;
 		double liquidWealth = h.getBankBalance(); // No home equity needs to be added here: home-movers always sell their homes before trying to buy new ones
@@ -203,8 +236,10 @@ public class Bank {
         if(liquidWealth < approval.downPayment) {
 			System.out.println("Failed down-payment constraint: bank balance = " + liquidWealth + " downpayment = "
                     + approval.downPayment);
-			System.exit(0);
+			approval.approved = false;
+			return approval;
 		}
+		approval.approved = true;
 		// --- allow larger downpayments
 		if(desiredDownPayment < 0.0) desiredDownPayment = 0.0;
 		if(desiredDownPayment > liquidWealth) desiredDownPayment = liquidWealth;
@@ -235,7 +270,6 @@ public class Bank {
 	double getMaxMortgage(double liquidWealth, double annualGrossEmploymentIncome, double monthlyNetEmploymentIncome,
                           boolean isFirstTimeBuyer, boolean isHome) {
 		double max_price;
-		double affordability_max_price; // Affordability (disposable income) constraint for maximum house price
 		double lti_max_price; // Loan to income constraint for maximum house price
 		double icr_max_price; // Interest cover ratio constraint for maximum house price
 		double max_downpayment = liquidWealth - 0.01; // Maximum down-payment the household could make, where 1 cent is subtracted to avoid rounding errors
@@ -245,14 +279,12 @@ public class Bank {
         max_price = max_downpayment/(1.0 - getLoanToValueLimit(isFirstTimeBuyer, isHome));
 
         if(isHome) { // No LTI nor affordability constraints for BTL investors
-            // Affordability constraint
-            affordability_max_price = max_downpayment + Math.max(0.0, config.CENTRAL_BANK_AFFORDABILITY_COEFF
-                    *monthlyNetEmploymentIncome)/getMonthlyPaymentFactor(isHome);
-            max_price = Math.min(max_price, affordability_max_price);
             // Loan-To-Income constraint
             lti_max_price = annualGrossEmploymentIncome*getLoanToIncomeLimit(isFirstTimeBuyer, isHome)
                     + max_downpayment;
             max_price = Math.min(max_price, lti_max_price);
+            // Affordability constraint
+            max_price = Math.min(max_price, getAffordabilityMaxPrice(liquidWealth, monthlyNetEmploymentIncome));
 		} else {
             // Interest-Cover-Ratio constraint
             icr_max_price = max_downpayment/(1.0 - Model.rentalMarketStats.getExpAvFlowYield()
@@ -265,11 +297,82 @@ public class Bank {
 	}
 
     /**
-     * This method removes a mortgage contract by removing it from the HashSet of mortgages
+     * Find, for a given household, the maximum house price that this mortgage-lender is willing to approve a home
+     * mortgage for, taking into account only the Loan-To-Value and the Loan-To-Income constraints. Since these do not
+     * depend on the region of the house, this allows households to factor them out of their regional searches, then
+     * combining them with the affordability constraint for each region, such that
+     * min(getMaxHomeMortgageBeforeAffordability, getAffordabilityMaxPrice) is exactly equal to getMaxMortgage
+     *
+     * @param liquidWealth The household's bank balance
+     * @param annualGrossEmploymentIncome The household's annual gross employment income
+     * @param isFirstTimeBuyer True if the household is a first-time buyer
+     * @return The maximum house price, given LTV and LTI constraints
+     */
+    double getMaxHomeMortgageBeforeAffordability(double liquidWealth, double annualGrossEmploymentIncome,
+                                                 boolean isFirstTimeBuyer) {
+        double max_downpayment = liquidWealth - 0.01; // Maximum down-payment the household could make
+        return Math.min(max_downpayment/(1.0 - getLoanToValueLimit(isFirstTimeBuyer, true)),
+                annualGrossEmploymentIncome*getLoanToIncomeLimit(isFirstTimeBuyer, true) + max_downpayment);
+    }
+
+    /**
+     * Find, for a given household, the maximum house price that this mortgage-lender is willing to approve a home
+     * mortgage for given the affordability (disposable income) constraint
+     *
+     * @param liquidWealth The household's bank balance
+     * @param monthlyNetEmploymentIncome The household's monthly net employment income, minus any commuting fees
+     * @return The maximum house price, given the affordability constraint
+     */
+    double getAffordabilityMaxPrice(double liquidWealth, double monthlyNetEmploymentIncome) {
+        double max_downpayment = liquidWealth - 0.01; // Maximum down-payment the household could make
+        return max_downpayment + Math.max(0.0, config.CENTRAL_BANK_AFFORDABILITY_COEFF*monthlyNetEmploymentIncome)
+                /getMonthlyPaymentFactor(true);
+    }
+
+    /**
+     * This method removes a mortgage contract by removing it from the HashSet of mortgages, subtracting any principal
+     * still due from the credit totals
      *
      * @param mortgage The MortgageAgreement object to be removed
      */
-    void endMortgageContract(MortgageAgreement mortgage) { mortgages.remove(mortgage); }
+    void endMortgageContract(MortgageAgreement mortgage) {
+        if (mortgages.remove(mortgage)) updateCredit(mortgage, -mortgage.principal);
+    }
+
+    /**
+     * Add a change in the principal due on a mortgage to the corresponding credit total (BTL or non-BTL). Note that
+     * this must be called for every change in principal of mortgages registered with the bank
+     */
+    void updateCredit(MortgageAgreement mortgage, double change) {
+        if (mortgage.isBuyToLet) {
+            totalBTLCredit += change;
+        } else {
+            totalOOCredit += change;
+        }
+    }
+
+    /**
+     * Recompute the credit totals exactly, by summing the principal due on all mortgages, so as to discard the rounding
+     * errors accumulated by incremental updates. Differences beyond these rounding errors, which would point to a
+     * change in principal not passed to updateCredit, are reported
+     */
+    public void reconcileCredit() {
+        double incrementalTotalCredit = totalOOCredit + totalBTLCredit;
+        totalOOCredit = 0.0;
+        totalBTLCredit = 0.0;
+        for(MortgageAgreement m : mortgages) {
+            if(m.isBuyToLet) {
+                totalBTLCredit += m.principal;
+            } else {
+                totalOOCredit += m.principal;
+            }
+        }
+        if (Math.abs(incrementalTotalCredit - totalOOCredit - totalBTLCredit)
+                > 1e-6*Math.max(1.0, totalOOCredit + totalBTLCredit)) {
+            System.out.println("Strange: incremental total credit " + incrementalTotalCredit + " differs from its "
+                    + "exact value " + (totalOOCredit + totalBTLCredit));
+        }
+    }
 
     //----- Mortgage policy methods -----//
 
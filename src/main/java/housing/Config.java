@@ -54,10 +54,20 @@ public class Config {
     // Demographic parameters
     public int TARGET_POPULATION;           // Target number of households
     public String DATA_AGE_DISTRIBUTION;    // Address for data on the age distribution of household representative persons
+    String HOUSEHOLD_STORE;                 // Storage backend for the primitive state of households: HEAP, DIRECT or MAPPED
+    String HOUSEHOLD_STORE_FILE;            // Address of the file backing the household store if MAPPED
+    boolean COMPACT_HOUSEHOLD_STATE;        // True to store lifetime-fixed household variables as floats
+    String HOUSEHOLD_KERNELS;               // Array kernels for household budgets and statistics: SCALAR or VECTOR
+    public boolean BITSET_HOUSEHOLD_STATS;  // True to count households by type from the flag bitsets of the household table
+    boolean SAMPLE_DEATHS_FROM_ROSTERS;     // True to sample deaths from age band rosters instead of shuffling everyone
+    boolean PARALLEL_BIRTHS;                // True to create newborn households in parallel, from per-birth substreams
+    int INITIAL_ALLOCATION_ROUNDS;          // Rounds of bidding and clearing allocating the initial housing stock
+    public int CREDIT_RECONCILIATION_PERIOD; // Months between exact recomputations of credit totals, 0 for never
 
     // Household parameters
     public String DATA_INCOME_GIVEN_AGE;    // Address for conditional probability of total gross non-rent income given age
     public String DATA_WEALTH_GIVEN_INCOME; // Address for conditional probability of liquid wealth given total gross non-rent income
+    public int CALIBRATION_LOOKUP_REFINEMENT; // Lookup surface knots per inverse CDF sample for income and wealth, 0 for exact
 
     // Household behaviour parameters: buy-to-let
     private double P_INVESTOR;              // Prior probability of being (wanting to be) a BTL investor
@@ -74,9 +84,13 @@ public class Config {
     // Household behaviour parameters: general
     double HPA_EXPECTATION_FACTOR;              // Weight assigned to current trend when computing expectations
     public int HPA_YEARS_TO_CHECK;              // Number of years of the HPI record to check when computing the annual HPA
+    boolean FAST_MATH;                          // True to use table-based approximations to exp, log, pow and sigma
+    boolean BATCH_HOUSEHOLD_DECISIONS;          // True to step the households of each region in batches
+    boolean EVENT_DRIVEN_HOUSEHOLDS;            // True to limit dormant households to their financial update
     // Household behaviour parameters: location decision
     double LOCATION_QUALITY_EXPONENT;       // The parameter a in the formula F = Q^a/(P+b), where Q is quality and P is price
     double LOCATION_PRICE_THRESHOLD;        // The parameter b in the formula F = Q^a/(P+b), where Q is quality and P is price
+    double HOME_SEARCH_CACHE_TOLERANCE;     // Relative change in market conditions, income or bank balance beyond which households redo their home search (0.0 to disable caching)
     // Household behaviour parameters: sale price reduction
     double P_SALE_PRICE_REDUCE;             // Monthly probability of reducing the price of a house on the market
     double REDUCTION_MU;                    // Mean percentage reduction for prices of houses on the market
@@ -139,6 +153,7 @@ public class Config {
     double GOVERNMENT_GENERAL_PERSONAL_ALLOWANCE;           // General personal allowance to be deducted when computing taxable income
     double GOVERNMENT_INCOME_LIMIT_FOR_PERSONAL_ALLOWANCE;  // Limit of income above which personal allowance starts to decrease £1 for every £2 of income above this limit
     public double GOVERNMENT_MONTHLY_INCOME_SUPPORT;        // Minimum monthly earnings for a married couple from income support
+    boolean GOVERNMENT_TAX_TABLES;                          // True to compile taxes into piecewise linear tables
     public String DATA_TAX_RATES;                           // Address for tax bands and rates data
     public String DATA_NATIONAL_INSURANCE_RATES;            // Address for national insurance bands and rates data
 
@@ -150,6 +165,9 @@ public class Config {
     public String DATA_COMMUTING_FEES;              // Address for data on commuting fees between regions
     public String DATA_REAL_POPULATION_PER_REGION;  // Address for data on real population per region
     public double COMMUTING_COSTS_MULTIPLIER;
+    public String DATA_COMMUTING_NEIGHBOURHOODS;    // Address for sparse data on reachable home regions per job region
+    public double COMMUTING_TIME_CUTOFF;            // Maximum commuting time per trip for a home region to be reachable
+    public int COMMUTING_MAX_NEIGHBOURS;            // Maximum number of nearest home regions reachable per job region
 
     /** Construction of objects to contain derived parameters and constants **/
 
@@ -329,8 +347,9 @@ public class Config {
             System.out.println("Exception " + ioe + " while trying to read file '" + configFileName + "'");
             ioe.printStackTrace();
         }
-        // Finally, compute and set values for all derived parameters
+        // Finally, compute and set values for all derived parameters, and check parameter values and combinations
         setDerivedParams();
+        checkParameterValues();
     }
 
     /**
@@ -355,6 +374,24 @@ public class Config {
         derivedParams.AFFORDABILITY_DECAY = Math.exp(-1.0/100.0);
     }
 
+    /**
+     * Method to reject parameter values out of their valid ranges, and combinations of parameters selecting features
+     * which cannot work together
+     */
+    private void checkParameterValues() {
+        if (INITIAL_ALLOCATION_ROUNDS < 0) {
+            throw new ParameterOutOfRangeException("INITIAL_ALLOCATION_ROUNDS", INITIAL_ALLOCATION_ROUNDS, "0 or more");
+        }
+        if (CREDIT_RECONCILIATION_PERIOD < 0) {
+            throw new ParameterOutOfRangeException("CREDIT_RECONCILIATION_PERIOD", CREDIT_RECONCILIATION_PERIOD,
+                    "0 or more");
+        }
+        // Batch household decisions draw every monthly decision at once, so there are no dormant households to wake up
+        if (EVENT_DRIVEN_HOUSEHOLDS && BATCH_HOUSEHOLD_DECISIONS) {
+            throw new IncompatibleParametersException("EVENT_DRIVEN_HOUSEHOLDS", "BATCH_HOUSEHOLD_DECISIONS");
+        }
+    }
+
     /**
      * Equivalent to NumberFormatException for detecting problems when parsing for boolean values
      */
@@ -362,6 +399,24 @@ public class Config {
         BooleanFormatException(String message) { super(message); }
     }
 
+    /**
+     * Exception for detecting parameter values out of their valid ranges
+     */
+    public class ParameterOutOfRangeException extends RuntimeException {
+        ParameterOutOfRangeException(String name, Object value, String range) {
+            super("Parameter \"" + name + "\" is set to " + value + ", but it must be " + range);
+        }
+    }
+
+    /**
+     * Exception for detecting parameters which cannot be set to true at the same time
+     */
+    public class IncompatibleParametersException extends RuntimeException {
+        IncompatibleParametersException(String first, String second) {
+            super("Parameters \"" + first + "\" and \"" + second + "\" cannot be both set to true");
+        }
+    }
+
     /**
      * Exception for detecting unrecognised (not implemented) field types
      */
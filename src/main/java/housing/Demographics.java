@@ -1,6 +1,7 @@
 package housing;
 
 import java.util.*;
+import java.util.stream.IntStream;
 
 import org.apache.commons.math3.random.MersenneTwister;
 
@@ -12,14 +13,25 @@ public class Demographics {
 
     private Config	            config; // Private field to receive the Model's configuration parameters object
     private MersenneTwister     rand; // Private field to receive the Model's random number generator
-    private Random              altRand; // Alternative random number generator to use with Collections.shuffle()
+    private Random              altRand; // Alternative random number generator to use when choosing deaths
     private Geography           geography;
     private int                 totalPopulation;
+    private HouseholdTable      householdTable; // Primitive state of all living households
+    private ArrayDeque<Household> householdPool = new ArrayDeque<>(); // Deceased households, to be reused at births
     private double              firstBinMin = data.Demographics.getMonthlyAgeDistributionMinimum();
     private double              binWidth = data.Demographics.getMonthlyAgeDistributionBinWidth();
     private int                 ageDistSize = data.Demographics.getMonthlyAgeDistributionSize();
     private int []              householdsPerAgeBand = new int[data.Demographics.getMonthlyAgeDistributionSize()];
     private int []              birthsAndDeaths = new int[data.Demographics.getMonthlyAgeDistributionSize()];
+    // Rosters of living households per age cohort, and their sizes, as ring buffers indexed by cohort modulo their
+    // length, which is enough to hold all cohorts currently going through the age bands (plus the one just left behind)
+    private int []              householdsPerAgeCohort = new int[data.Demographics.getMonthlyAgeDistributionSize() + 2];
+    private Household [][]      ageCohortRosters = new Household[householdsPerAgeCohort.length][];
+    private ArrayList<Household> householdsToKill = new ArrayList<>();
+    // Newborn households and seeds of their random substreams, if creating households in parallel
+    private ArrayList<Household> newborns = new ArrayList<>();
+    private long []             newbornSeeds = new long[16];
+    private ThreadLocal<MersenneTwister> newbornRand = ThreadLocal.withInitial(MersenneTwister::new);
 
     //------------------------//
     //----- Constructors -----//
@@ -35,6 +47,13 @@ public class Demographics {
         this.rand = rand;
         this.altRand = new Random(this.rand.nextLong());
         this.geography = geography;
+        householdTable = HouseholdTable.create(config);
+        for (int k = 0; k < ageCohortRosters.length; k++) ageCohortRosters[k] = new Household[16];
+        if (Math.abs(binWidth*config.constants.MONTHS_IN_YEAR - 1.0) > 1e-9) {
+            // Households are aged by moving their cohort one band forward every month, so this would corrupt ages
+            System.out.println("Strange: age bands are not one month wide, households would not move one band monthly");
+            System.exit(0);
+        }
     }
 
     //-------------------//
@@ -44,7 +63,15 @@ public class Demographics {
     /**
      * Sets initial values for all relevant variables
      */
-    public void init() { totalPopulation = 0; }
+    public void init() {
+        totalPopulation = 0;
+        householdTable.clear();
+        householdPool.clear();
+        for (int k = 0; k < ageCohortRosters.length; k++) {
+            Arrays.fill(ageCohortRosters[k], 0, householdsPerAgeCohort[k], null);
+            householdsPerAgeCohort[k] = 0;
+        }
+    }
 
     /**
      * Add newly born households to the model and remove households that die. Given a distribution of age (with monthly
@@ -66,23 +93,15 @@ public class Demographics {
 
 
     /**
-     * After increasing the age of all currently existing households by one month, create a histogram with the actual
-     * number of households in each age band. Note that there might be households older than the maximum bin edge, which
-     * will be ignored here, but they will be assigned a death probability equal to one later on
+     * Create a histogram with the actual number of households in each age band. Since age bands are one month wide,
+     * all households move one band up every month, and households in each band are simply those of the cohort
+     * currently going through it, such that no pass over all households is needed. Note that there might be
+     * households older than the maximum bin edge, which will be ignored here, but they will be assigned a death
+     * probability equal to one later on
      */
     private void updateHouseholdsPerAgeBand() {
-        // The array must be reset to zero every time step
-        Arrays.fill(householdsPerAgeBand, 0);
-        // For each region...
-        for (Region region : geography.getRegions()) {
-            for (Household h : region.households) {
-                // ...first, households age
-                h.ageOneMonth();
-                // ...then find the bin at which the age of the household falls...
-                int i = (int) ((h.getAge() - firstBinMin) / binWidth);
-                // ...and increase the number of households in that bin by one (ignoring ages beyond the maximum edge)
-                if (i < householdsPerAgeBand.length) householdsPerAgeBand[i]++;
-            }
+        for (int i = 0; i < householdsPerAgeBand.length; i++) {
+            householdsPerAgeBand[i] = householdsPerAgeCohort[cohortIndex(Model.getTime() - i)];
         }
     }
 
@@ -101,6 +120,10 @@ public class Demographics {
      * between the corresponding bin edges
      */
     private void implementBirths() {
+        if (config.PARALLEL_BIRTHS) {
+            implementBirthsInParallel();
+            return;
+        }
         // For each age band...
         for (int i = 0; i < birthsAndDeaths.length; i++) {
             // ...implement all required births...
@@ -113,7 +136,15 @@ public class Demographics {
                 // ...and a random job region, with probability proportional to the target population of the region
                 Region jobRegion =
                         geography.getRegions().get(data.Demographics.getProbDistOfRegionsByPopulation().sample());
-                jobRegion.households.add(new Household(config, rand, age, geography, jobRegion));
+                // ...reusing the storage of a deceased household, if available
+                Household household = householdPool.pollLast();
+                if (household == null) {
+                    household = new Household(config, rand, age, geography, jobRegion, householdTable);
+                } else {
+                    household.reset(age, jobRegion);
+                }
+                jobRegion.addHousehold(household);
+                addToRoster(household);
                 birthsAndDeaths[i]--;
                 totalPopulation++;
             }
@@ -121,15 +152,103 @@ public class Demographics {
     }
 
     /**
-     * First, all households are collected in an ArrayList and shuffled so as to randomise deaths. Then, a run through
-     * these households is used to store for killing as many households per age band as needed according to the
-     * birthsAndDeaths array previously created. Thus, this method is not probabilistic and it rather kills the exact
-     * number of households per age band as needed to obtain the expected number of households per age band. Then, a
-     * first run through the households to kill is used to remove them from their home region and, finally, another run
-     * through the households to kill is used to implement inheritance, which might mean moving some households between
-     * regions if they inherit a new home in a different region from the one they had so far been living at.
+     * Parallel version of implementBirths. First, the age, the job region and the seed of a random substream are drawn
+     * for each newborn household, in the same order as for serial births, and each newborn household takes its row at
+     * the household table. Then, the rest of the initial state of all newborn households, which only depends on their
+     * own random substreams, is filled in concurrently. Finally, the flags of newborn households are set, as they are
+     * stored as bitsets shared by many households, and newborn households are added to their job regions and age
+     * cohort rosters, all in birth order, such that results are reproducible and independent of the number of threads,
+     * though different from those of serial births
+     */
+    private void implementBirthsInParallel() {
+        // For each age band...
+        newborns.clear();
+        for (int i = 0; i < birthsAndDeaths.length; i++) {
+            // ...implement all required births...
+            while (birthsAndDeaths[i] > 0) {
+                // ...by choosing a random age within the band
+                double age = (rand.nextDouble() + i) * binWidth + firstBinMin;
+                if (age >= firstBinMin + (i + 1) * binWidth) { // To correct for possible rounding errors
+                    age = Math.nextDown(firstBinMin + (i + 1) * binWidth);
+                }
+                // ...and a random job region, with probability proportional to the target population of the region
+                Region jobRegion =
+                        geography.getRegions().get(data.Demographics.getProbDistOfRegionsByPopulation().sample());
+                // ...reusing the storage of a deceased household, if available
+                Household household = householdPool.pollLast();
+                if (household == null) household = new Household(config, rand, geography, householdTable);
+                household.startBirth(age, jobRegion);
+                // ...and a seed for the random substream of the household
+                if (newborns.size() == newbornSeeds.length) {
+                    newbornSeeds = Arrays.copyOf(newbornSeeds, 2*newbornSeeds.length);
+                }
+                newbornSeeds[newborns.size()] = rand.nextLong();
+                newborns.add(household);
+                birthsAndDeaths[i]--;
+                totalPopulation++;
+            }
+        }
+        // Then, fill in the rest of the initial state of all newborn households concurrently...
+        IntStream.range(0, newborns.size()).parallel().forEach(j -> {
+            MersenneTwister random = newbornRand.get();
+            random.setSeed(newbornSeeds[j]);
+            newborns.get(j).completeBirth(random);
+        });
+        // ...and finally set their flags and add them to their job regions and age cohort rosters, in birth order
+        for (Household household : newborns) {
+            household.finishBirth();
+            household.getJobRegion().addHousehold(household);
+            addToRoster(household);
+        }
+        newborns.clear();
+    }
+
+    /**
+     * First, households to kill are chosen, either by shuffling all households (see chooseDeathsByShuffling) or by
+     * sampling from the roster of each age band (see chooseDeathsFromRosters). Either way, this method is not
+     * probabilistic and it rather kills the exact number of households per age band as needed to obtain the expected
+     * number of households per age band. Then, a first run through the households to kill is used to remove them from
+     * their home region and, finally, another run through the households to kill is used to implement inheritance,
+     * which might mean moving some households between regions if they inherit a new home in a different region from
+     * the one they had so far been living at.
      */
     private void implementDeaths() {
+        // First, choose the households to kill
+        householdsToKill.clear();
+        if (config.SAMPLE_DEATHS_FROM_ROSTERS) {
+            chooseDeathsFromRosters();
+        } else {
+            chooseDeathsByShuffling();
+        }
+        // Then, remove all households to be killed from their respective regions
+        for (Household h : householdsToKill) {
+            h.getHomeRegion().removeHousehold(h);
+        }
+        // And, finally, implement inheritance with a randomly chosen heir within the same region (preventing
+        // self-inheritance)
+        for (Household h : householdsToKill) {
+            Household beneficiary = h.getHomeRegion().households.get(rand.nextInt(h.getHomeRegion().households.size()));
+            while (beneficiary == h) {
+                beneficiary = h.getHomeRegion().households.get(rand.nextInt(h.getHomeRegion().households.size()));
+            }
+            h.transferAllWealthTo(beneficiary);
+        }
+        // Finally, release the rows of the deceased households at the household table, keeping the households
+        // themselves for reuse at later births
+        for (Household h : householdsToKill) {
+            removeFromRoster(h);
+            householdTable.remove(h);
+            householdPool.addLast(h);
+        }
+        householdsToKill.clear();
+    }
+
+    /**
+     * Collect all households in a single ArrayList and shuffle it so as to randomise deaths. Then, run through these
+     * households storing for killing as many households per age band as needed according to the birthsAndDeaths array
+     * previously created, as well as all households older than the last age band
+     */
+    private void chooseDeathsByShuffling() {
         // First, run through the regions collecting all households in a single ArrayList...
         ArrayList<Household> allHouseholds = new ArrayList<>();
         for (Region region: geography.getRegions()) {
@@ -138,10 +257,9 @@ public class Demographics {
         // ...and shuffle this new ArrayList to randomise deaths
         Collections.shuffle(allHouseholds, altRand);
         // Then, run through households...
-        ArrayList<Household> householdsToKill = new ArrayList<>();
         for (Household h : allHouseholds) {
             // ...finding, for each of them, its age bin...
-            int i = (int) ((h.getAge() - firstBinMin) / binWidth);
+            int i = h.getAgeBand();
             // ...and killing it if more deaths still to be implemented in this age bin (controlling for out of bounds)
             if (i >= ageDistSize) {
                 householdsToKill.add(h);
@@ -153,22 +271,79 @@ public class Demographics {
                 totalPopulation--;
             }
         }
-        // Then, remove all households to be killed from their respective regions
-        for (Household h : householdsToKill) {
-            h.getHomeRegion().households.remove(h);
+    }
+
+    /**
+     * Store for killing all households of the cohort which has just gone past the last age band and then, for each age
+     * band with deaths to be implemented, choose as many households as needed by sampling without replacement from the
+     * roster of the cohort going through that band, by means of a partial Fisher-Yates shuffle of this roster. Thus,
+     * the cost of this method is proportional to the number of deaths, rather than to the size of the population
+     */
+    private void chooseDeathsFromRosters() {
+        // First, kill all households older than the last age band, which belong to a single cohort
+        int k = cohortIndex(Model.getTime() - ageDistSize);
+        for (int j = 0; j < householdsPerAgeCohort[k]; j++) {
+            householdsToKill.add(ageCohortRosters[k][j]);
+            totalPopulation--;
         }
-        // And, finally, implement inheritance with a randomly chosen heir within the same region (preventing
-        // self-inheritance)
-        for (Household h : householdsToKill) {
-            Household beneficiary = h.getHomeRegion().households.get(rand.nextInt(h.getHomeRegion().households.size()));
-            while (beneficiary == h) {
-                beneficiary = h.getHomeRegion().households.get(rand.nextInt(h.getHomeRegion().households.size()));
+        // Then, for each age band with deaths to be implemented...
+        for (int i = 0; i < ageDistSize; i++) {
+            if (birthsAndDeaths[i] >= 0) continue;
+            k = cohortIndex(Model.getTime() - i);
+            Household [] roster = ageCohortRosters[k];
+            int n = householdsPerAgeCohort[k];
+            // ...move a randomly chosen household among those not yet chosen to the front of the roster, and kill it
+            for (int j = 0; birthsAndDeaths[i] < 0 && j < n; j++) {
+                swapRosterPositions(roster, j, j + altRand.nextInt(n - j));
+                householdsToKill.add(roster[j]);
+                birthsAndDeaths[i]++;
+                householdsPerAgeBand[i]--;
+                totalPopulation--;
             }
-            h.transferAllWealthTo(beneficiary);
         }
     }
 
+    /**
+     * Add a newborn household to the roster of its age cohort
+     */
+    private void addToRoster(Household household) {
+        int k = cohortIndex(household.getAgeCohort());
+        int n = householdsPerAgeCohort[k];
+        if (n == ageCohortRosters[k].length) ageCohortRosters[k] = Arrays.copyOf(ageCohortRosters[k], 2*n);
+        ageCohortRosters[k][n] = household;
+        household.rosterPosition = n;
+        householdsPerAgeCohort[k] = n + 1;
+    }
+
+    /**
+     * Remove a deceased household from the roster of its age cohort, moving the last household of the roster into its
+     * place
+     */
+    private void removeFromRoster(Household household) {
+        int k = cohortIndex(household.getAgeCohort());
+        Household [] roster = ageCohortRosters[k];
+        int last = --householdsPerAgeCohort[k];
+        swapRosterPositions(roster, household.rosterPosition, last);
+        roster[last] = null;
+        household.rosterPosition = -1;
+    }
+
+    private void swapRosterPositions(Household [] roster, int a, int b) {
+        Household household = roster[a];
+        roster[a] = roster[b];
+        roster[b] = household;
+        roster[a].rosterPosition = a;
+        roster[b].rosterPosition = b;
+    }
+
+    /**
+     * @return Position of the given age cohort at the ring buffer of households per age cohort
+     */
+    private int cohortIndex(int cohort) { return Math.floorMod(cohort, householdsPerAgeCohort.length); }
+
     //----- Getter/setter methods -----//
 
     public int getTotalPopulation() { return totalPopulation; }
+
+    public HouseholdTable getHouseholdTable() { return householdTable; }
 }
@@ -0,0 +1,114 @@
+package housing;
+
+import java.util.Arrays;
+
+/**************************************************************************************************
+ * Calendar queue of scheduled household events, such as tenancy expiries, mortgage maturities and
+ * home sales, implemented as a timing wheel with one bucket per month. Events are registered for
+ * the month they are due and, at the start of each month, the events due that month are fired,
+ * waking up the corresponding households, such that households with no due events and nothing
+ * else to decide can be limited to their monthly financial update. Events further away than the
+ * length of the wheel simply stay in their bucket for as many turns of the wheel as needed. Each
+ * event carries a stamp, passed back to the household when fired, such that events which are no
+ * longer valid (for instance, the end of a tenancy which has already been ended early, or of a
+ * tenancy of a previous life of a household whose storage has been reused for a newborn) can be
+ * told apart and ignored.
+ *
+ * @author agent
+ *
+ *************************************************************************************************/
+public class EventCalendar {
+
+    //------------------//
+    //----- Fields -----//
+    //------------------//
+
+    static final int            TENANCY_END = 0;
+    static final int            MORTGAGE_MATURITY = 1;
+    static final int            HOME_SALE = 2;
+
+    private static final int    WHEEL_BITS = 9; // Wheel of 512 months, events further away take several turns
+    private static final int    WHEEL_MONTHS = 1 << WHEEL_BITS;
+    private static final int    WHEEL_MASK = WHEEL_MONTHS - 1;
+    private static final int    INITIAL_BUCKET_CAPACITY = 16;
+
+    // Events in each bucket, as parallel arrays of households, due months, stamps and event types
+    private Household [][]      households = new Household[WHEEL_MONTHS][];
+    private int [][]            months = new int[WHEEL_MONTHS][];
+    private int [][]            stamps = new int[WHEEL_MONTHS][];
+    private byte [][]           types = new byte[WHEEL_MONTHS][];
+    private int []              sizes = new int[WHEEL_MONTHS];
+
+    //------------------------//
+    //----- Constructors -----//
+    //------------------------//
+
+    EventCalendar() {
+        for (int i = 0; i < WHEEL_MONTHS; i++) {
+            households[i] = new Household[INITIAL_BUCKET_CAPACITY];
+            months[i] = new int[INITIAL_BUCKET_CAPACITY];
+            stamps[i] = new int[INITIAL_BUCKET_CAPACITY];
+            types[i] = new byte[INITIAL_BUCKET_CAPACITY];
+        }
+    }
+
+    //-------------------//
+    //----- Methods -----//
+    //-------------------//
+
+    /**
+     * Remove all scheduled events
+     */
+    void clear() {
+        for (int i = 0; i < WHEEL_MONTHS; i++) {
+            Arrays.fill(households[i], 0, sizes[i], null);
+            sizes[i] = 0;
+        }
+    }
+
+    /**
+     * Register an event of the given type for the given household, due at the given month, with a stamp identifying
+     * the state of the household the event refers to
+     */
+    void schedule(int month, int type, Household household, int stamp) {
+        int bucket = month & WHEEL_MASK;
+        int size = sizes[bucket];
+        if (size == households[bucket].length) {
+            households[bucket] = Arrays.copyOf(households[bucket], 2*size);
+            months[bucket] = Arrays.copyOf(months[bucket], 2*size);
+            stamps[bucket] = Arrays.copyOf(stamps[bucket], 2*size);
+            types[bucket] = Arrays.copyOf(types[bucket], 2*size);
+        }
+        households[bucket][size] = household;
+        months[bucket][size] = month;
+        stamps[bucket][size] = stamp;
+        types[bucket][size] = (byte)type;
+        sizes[bucket] = size + 1;
+    }
+
+    /**
+     * Fire all events due at the given month, waking up their households, and remove them from the calendar, keeping
+     * in the bucket those events due at later turns of the wheel
+     */
+    void fire(int month) {
+        int bucket = month & WHEEL_MASK;
+        Household [] bucketHouseholds = households[bucket];
+        int [] bucketMonths = months[bucket];
+        int [] bucketStamps = stamps[bucket];
+        byte [] bucketTypes = types[bucket];
+        int kept = 0;
+        for (int i = 0; i < sizes[bucket]; i++) {
+            if (bucketMonths[i] == month) {
+                bucketHouseholds[i].wake(month, bucketTypes[i], bucketStamps[i]);
+            } else {
+                bucketHouseholds[kept] = bucketHouseholds[i];
+                bucketMonths[kept] = bucketMonths[i];
+                bucketStamps[kept] = bucketStamps[i];
+                bucketTypes[kept] = bucketTypes[i];
+                kept++;
+            }
+        }
+        Arrays.fill(bucketHouseholds, kept, sizes[bucket], null);
+        sizes[bucket] = kept;
+    }
+}
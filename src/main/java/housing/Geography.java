@@ -4,9 +4,15 @@ import data.Transport;
 import org.apache.commons.math3.random.MersenneTwister;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 
 /**************************************************************************************************
- * Class to encapsulate the geography of regions and the commuting times and fees between them
+ * Class to encapsulate the geography of regions and the commuting times and fees between them.
+ * For each job region, commuting data is only kept for its commuting neighbourhood, i.e., the
+ * home regions reachable from it, sorted by region ID. By default, with dense commuting matrices
+ * and neither a commuting time cutoff nor a limit on the number of neighbours, every region is
+ * reachable from every job region.
  *
  * @author Adrian Carro
  * @since 05/02/2018
@@ -19,8 +25,15 @@ public class Geography {
     //------------------//
 
     private static ArrayList<Region>        regions;
-    private ArrayList<ArrayList<Double>>    commutingTimeMatrix;
-    private ArrayList<ArrayList<Double>>    commutingFeeMatrix;
+    private Region [][]                     reachableRegions; // Reachable home regions by job regionID
+    private int [][]                        reachableRegionIDs; // IDs of reachable home regions by job regionID
+    private double [][]                     commutingTimes; // Commuting times to reachable home regions by job regionID
+    private double [][]                     commutingFees; // Commuting fees to reachable home regions by job regionID
+    private double []                       maxCommutingTimes; // Time used for unreachable regions, by job regionID
+    private double []                       maxCommutingFees; // Fee used for unreachable regions, by job regionID
+    private double [][]                     monthlyCommutingFees; // Monthly fees to reachable regions by job regionID
+    private double []                       maxMonthlyCommutingFees; // Monthly fee for unreachable regions, by job ID
+    private MarketSnapshot                  marketSnapshot; // Last published snapshot of the market statistics
     private Config	                        config = Model.config; // Passes the Model's configuration parameters object to a private field
 
     //------------------------//
@@ -38,22 +51,106 @@ public class Geography {
             regions.add(new Region(config, rand, targetPopulation, regionID));
             regionID++;
         }
-        // Read matrix of commuting times between regions, pass the number of regions to check if it is the same as in
-        // the commuting times file
-        commutingTimeMatrix = Transport.getCommutingTimeMatrix(regions.size());
-        // Read matrix of commuting times between regions, pass the number of regions to check if it is the same as in
-        // the commuting times file
-        commutingFeeMatrix = Transport.getCommutingFeeMatrix(regions.size());
+        // Collect, for each job region, a list of {homeRegionID, commuting time, commuting fee} candidates...
+        ArrayList<ArrayList<double []>> candidates = new ArrayList<>();
+        for (int i = 0; i < regions.size(); i++) candidates.add(new ArrayList<>());
+        if (Transport.isSparse()) {
+            // ...either from the sparse commuting neighbourhoods file, passing the number of regions to check if it is
+            // coherent with the region IDs in the file...
+            for (double [] entry : Transport.getCommutingNeighbourhoods(regions.size())) {
+                candidates.get((int)entry[0]).add(new double[] {entry[1], entry[2], entry[3]});
+            }
+        } else {
+            // ...or from the matrices of commuting times and fees between regions, passing the number of regions to
+            // check if it is the same as in the commuting times and fees files
+            ArrayList<ArrayList<Double>> timeMatrix = Transport.getCommutingTimeMatrix(regions.size());
+            ArrayList<ArrayList<Double>> feeMatrix = Transport.getCommutingFeeMatrix(regions.size());
+            for (int i = 0; i < regions.size(); i++) {
+                for (int j = 0; j < regions.size(); j++) {
+                    candidates.get(i).add(new double[] {j, timeMatrix.get(i).get(j), feeMatrix.get(i).get(j)});
+                }
+            }
+        }
+        // Then select, for each job region, its commuting neighbourhood among these candidates
+        setCommutingNeighbourhoods(candidates);
     }
 
     //-------------------//
     //----- Methods -----//
     //-------------------//
 
+    /**
+     * Select, for each job region, the home regions reachable from it, i.e., those within the commuting time cutoff
+     * and, among these, the nearest ones up to the maximum number of neighbours, always including the job region
+     * itself. Reachable regions are then stored sorted by region ID, together with their commuting times and fees, with
+     * the commuting costs multiplier already applied. The maximum commuting time and fee within each neighbourhood are
+     * also kept, to be used for any home region outside it.
+     *
+     * @param candidates List of {homeRegionID, commuting time, commuting fee} candidates, by job regionID
+     */
+    private void setCommutingNeighbourhoods(ArrayList<ArrayList<double []>> candidates) {
+        int nRegions = regions.size();
+        reachableRegions = new Region[nRegions][];
+        reachableRegionIDs = new int[nRegions][];
+        commutingTimes = new double[nRegions][];
+        commutingFees = new double[nRegions][];
+        maxCommutingTimes = new double[nRegions];
+        maxCommutingFees = new double[nRegions];
+        monthlyCommutingFees = new double[nRegions][];
+        maxMonthlyCommutingFees = new double[nRegions];
+        for (int i = 0; i < nRegions; i++) {
+            // First, make sure the job region itself is among the candidates
+            ArrayList<double []> neighbourhood = candidates.get(i);
+            boolean hasJobRegion = false;
+            for (double [] candidate : neighbourhood) if ((int)candidate[0] == i) hasJobRegion = true;
+            if (!hasJobRegion) {
+                System.out.println("Strange: No commuting data within region " + i + ", using zero time and fee");
+                neighbourhood.add(new double[] {i, 0.0, 0.0});
+            }
+            // Then, sort candidates by commuting time (ties by region ID) and keep those within the cutoff and the
+            // maximum number of neighbours, always keeping the job region
+            neighbourhood.sort(Comparator.<double []>comparingDouble(c -> c[1]).thenComparingDouble(c -> c[0]));
+            ArrayList<double []> reachable = new ArrayList<>();
+            boolean isJobRegionAdded = false;
+            for (double [] candidate : neighbourhood) {
+                boolean isJobRegion = ((int)candidate[0] == i);
+                boolean isWithinCutoff = (config.COMMUTING_TIME_CUTOFF <= 0.0
+                        || candidate[1] <= config.COMMUTING_TIME_CUTOFF);
+                // ...leaving room for the job region, if not yet added
+                boolean hasRoom = (config.COMMUTING_MAX_NEIGHBOURS <= 0
+                        || reachable.size() < config.COMMUTING_MAX_NEIGHBOURS - (isJobRegionAdded ? 0 : 1));
+                if (isJobRegion || (isWithinCutoff && hasRoom)) {
+                    reachable.add(candidate);
+                    if (isJobRegion) isJobRegionAdded = true;
+                }
+            }
+            // Finally, store reachable regions sorted by region ID
+            reachable.sort(Comparator.comparingDouble(c -> c[0]));
+            reachableRegions[i] = new Region[reachable.size()];
+            reachableRegionIDs[i] = new int[reachable.size()];
+            commutingTimes[i] = new double[reachable.size()];
+            commutingFees[i] = new double[reachable.size()];
+            monthlyCommutingFees[i] = new double[reachable.size()];
+            for (int k = 0; k < reachable.size(); k++) {
+                reachableRegionIDs[i][k] = (int)reachable.get(k)[0];
+                reachableRegions[i][k] = regions.get(reachableRegionIDs[i][k]);
+                commutingTimes[i][k] = config.COMMUTING_COSTS_MULTIPLIER*reachable.get(k)[1];
+                commutingFees[i][k] = config.COMMUTING_COSTS_MULTIPLIER*reachable.get(k)[2];
+                maxCommutingTimes[i] = Math.max(maxCommutingTimes[i], commutingTimes[i][k]);
+                maxCommutingFees[i] = Math.max(maxCommutingFees[i], commutingFees[i][k]);
+                monthlyCommutingFees[i][k] = 2.0 * commutingFees[i][k] * config.constants.WORKING_DAYS_IN_MONTH;
+            }
+            maxMonthlyCommutingFees[i] = 2.0 * maxCommutingFees[i] * config.constants.WORKING_DAYS_IN_MONTH;
+        }
+    }
+
     /**
      * Initialises the geography by initialising its regions
      */
-    public void init() { for (Region r : regions) r.init(); }
+    public void init() {
+        for (Region r : regions) r.init();
+        marketSnapshot = null;
+    }
 
     /**
      * Main method of the class: first, it loops through the regions updating household's bids, and then again clearing
@@ -68,15 +165,120 @@ public class Geography {
         for (Region r : regions) r.regionalHouseholdStats.record();
     }
 
+    /**
+     * Allocate the initial housing stock among the initial population by means of a number of rounds of bidding and
+     * market clearing at the first time step, before the first household step. At each round, households in social
+     * housing bid for a home and buy-to-let investors owning a home bid for an investment property, and then all sale
+     * and rental markets are cleared, such that purchases are financed by mortgages subject to the same bank limits as
+     * at any other time. Transactions are recorded as usual, but monthly market statistics are not, as their counters
+     * are reset again before the first regular market clearing
+     */
+    void allocateInitialHousing(int rounds) {
+        for (int round = 0; round < rounds; round++) {
+            for (Region r : regions) {
+                for (Household h : r.households) h.bidForInitialHousing();
+            }
+            for (Region r : regions) {
+                r.regionalHousingMarketStats.preClearingRecord();
+                r.houseSaleMarket.clearMarket();
+                r.regionalRentalMarketStats.preClearingRecord();
+                r.houseRentalMarket.clearMarket();
+            }
+        }
+    }
+
+    /**
+     * Publish a new immutable snapshot of the market statistics used by households in their decisions. This must be
+     * called once per month, after all market statistics collectors have been updated
+     */
+    void publishMarketSnapshot() { marketSnapshot = new MarketSnapshot(config, regions, marketSnapshot); }
+
+    /**
+     * Republish the market snapshot with the current market statistics of the given region, keeping those of all other
+     * regions. This must be called each time the market statistics of a region are updated after clearing its markets
+     */
+    void republishMarketSnapshot(Region region) {
+        marketSnapshot = new MarketSnapshot(config, marketSnapshot, region);
+    }
+
     //----- Getter/setter methods -----//
 
+    MarketSnapshot getMarketSnapshot() { return marketSnapshot; }
+
     public ArrayList<Region> getRegions() { return regions; }
 
+    /**
+     * @return Home regions reachable from the given job region, sorted by region ID
+     */
+    Region [] getReachableRegions(Region jobRegion) { return reachableRegions[jobRegion.getRegionID()]; }
+
+    /**
+     * @return Position of the given home region among those reachable from the given job region, or -1 if unreachable
+     */
+    int getReachableIndex(Region jobRegion, Region homeRegion) {
+        int [] ids = reachableRegionIDs[jobRegion.getRegionID()];
+        // If every region is reachable, then positions coincide with region IDs
+        if (ids.length == regions.size()) return homeRegion.getRegionID();
+        int index = Arrays.binarySearch(ids, homeRegion.getRegionID());
+        return (index >= 0) ? index : -1;
+    }
+
+    /**
+     * @return Commuting time per trip between the given job region and the home region at the given position among
+     * those reachable from it, or the maximum commuting time within the neighbourhood if position is -1 (unreachable)
+     */
+    double getCommutingTime(Region jobRegion, int reachableIndex) {
+        return (reachableIndex >= 0) ? commutingTimes[jobRegion.getRegionID()][reachableIndex]
+                : maxCommutingTimes[jobRegion.getRegionID()];
+    }
+
+    /**
+     * @return Commuting fee per trip between the given job region and the home region at the given position among
+     * those reachable from it, or the maximum commuting fee within the neighbourhood if position is -1 (unreachable)
+     */
+    double getCommutingFee(Region jobRegion, int reachableIndex) {
+        return (reachableIndex >= 0) ? commutingFees[jobRegion.getRegionID()][reachableIndex]
+                : maxCommutingFees[jobRegion.getRegionID()];
+    }
+
+    /**
+     * @return Monthly commuting fee, for two trips per working day, between the given job region and the home region at
+     * the given position among those reachable from it, or the maximum within the neighbourhood if position is -1
+     */
+    double getMonthlyCommutingFee(Region jobRegion, int reachableIndex) {
+        return (reachableIndex >= 0) ? monthlyCommutingFees[jobRegion.getRegionID()][reachableIndex]
+                : maxMonthlyCommutingFees[jobRegion.getRegionID()];
+    }
+
+    /**
+     * Sum the monthly commuting fees and total commuting costs (time plus fees) of all households living at the given
+     * region, from the number of them working at each region and the sum of their monthly gross employment incomes, as
+     * found by HouseholdTable.sumByJobRegion, since the value of commuting time is proportional to this income
+     *
+     * @param counts Number of households living at the home region, indexed by the id of the region they work at
+     * @param incomes Sum of the monthly gross employment incomes of these households, indexed likewise
+     * @param sums Array where to write the sum of monthly commuting fees, at position 0, and costs, at position 1
+     */
+    public void sumMonthlyCommutingCosts(Region homeRegion, int [] counts, double [] incomes, double [] sums) {
+        sums[0] = 0.0;
+        sums[1] = 0.0;
+        for (Region jobRegion : regions) {
+            int jobRegionID = jobRegion.getRegionID();
+            if (counts[jobRegionID] == 0) continue;
+            int reachableIndex = getReachableIndex(jobRegion, homeRegion);
+            sums[0] += counts[jobRegionID] * getMonthlyCommutingFee(jobRegion, reachableIndex);
+            sums[1] += 2.0 * (getCommutingTime(jobRegion, reachableIndex) * incomes[jobRegionID]
+                    / (config.constants.WORKING_DAYS_IN_MONTH * config.constants.WORKING_HOURS_IN_DAY)
+                    + counts[jobRegionID] * getCommutingFee(jobRegion, reachableIndex))
+                    * config.constants.WORKING_DAYS_IN_MONTH;
+        }
+    }
+
     double getCommutingTimeBetween(Region region1, Region region2) {
-        return config.COMMUTING_COSTS_MULTIPLIER*commutingTimeMatrix.get(region1.getRegionID()).get(region2.getRegionID());
+        return getCommutingTime(region1, getReachableIndex(region1, region2));
     }
 
     double getCommutingFeeBetween(Region region1, Region region2) {
-        return config.COMMUTING_COSTS_MULTIPLIER*commutingFeeMatrix.get(region1.getRegionID()).get(region2.getRegionID());
+        return getCommutingFee(region1, getReachableIndex(region1, region2));
     }
 }
@@ -1,8 +1,13 @@
 package housing;
 
+import utilities.PiecewiseLinearFunction;
+
 /**************************************************************************************************
  * Class to represent the government, whose only role in the current model is to collect taxes,
- * including both income tax and national insurance contributions
+ * including both income tax and national insurance contributions. Since both of them, including
+ * the personal allowance taper, are piecewise linear functions of gross income, they can also be
+ * compiled into primitive tables of slopes and intercepts, which then allow for faster scalar and
+ * batch evaluations, though not bit-for-bit identical to the exact banded computation
  *
  * @author daniel, Adrian Carro
  *
@@ -13,13 +18,24 @@ public class Government {
     //----- Fields -----//
     //------------------//
 
-    private Config      config; // Private field to receive the Model's configuration parameters object
+    private Config                  config; // Private field to receive the Model's configuration parameters object
+    private PiecewiseLinearFunction incomeTaxTable; // Compiled income tax, null if using exact banded computation
+    private PiecewiseLinearFunction class1NICsTable; // Compiled NICs, null if using exact banded computation
 
     //------------------------//
     //----- Constructors -----//
     //------------------------//
 
-    public Government(Config config) { this.config = config; }
+    public Government(Config config) {
+        this.config = config;
+        if (config.GOVERNMENT_TAX_TABLES) {
+            incomeTaxTable = new PiecewiseLinearFunction(this::exactIncomeTaxDue, getIncomeTaxBreakpoints());
+            Double [] bands = data.Government.nationalInsurance.bands;
+            double [] breakpoints = new double[bands.length];
+            for (int i = 0; i < bands.length; i++) breakpoints[i] = bands[i];
+            class1NICsTable = new PiecewiseLinearFunction(this::exactClass1NICsDue, breakpoints);
+        }
+    }
 
     //-------------------//
     //----- Methods -----//
@@ -33,6 +49,27 @@ public class Government {
      * @return Annual income tax due in pounds
 	 */
 	double incomeTaxDue(double grossIncome) {
+        if (incomeTaxTable != null) return incomeTaxTable.value(grossIncome);
+        return exactIncomeTaxDue(grossIncome);
+    }
+
+    /**
+     * Batch computation of the income tax due in one year for the first n gross annual incomes of an array, giving the
+     * same results as incomeTaxDue for each of them
+     *
+     * @param grossIncomes Gross annual incomes in pounds
+     * @param incomeTaxes Array where to write the annual income tax due for each income, which can be the input array
+     * @param n Number of incomes to compute the income tax for
+     */
+    void incomeTaxDue(double [] grossIncomes, double [] incomeTaxes, int n) {
+        if (incomeTaxTable != null) {
+            incomeTaxTable.values(grossIncomes, incomeTaxes, n);
+        } else {
+            for (int i = 0; i < n; i++) incomeTaxes[i] = exactIncomeTaxDue(grossIncomes[i]);
+        }
+    }
+
+    private double exactIncomeTaxDue(double grossIncome) {
         // First, the personal allowance is computed, starting from its general value
         double personalAllowance = config.GOVERNMENT_GENERAL_PERSONAL_ALLOWANCE;
         // If gross annual income is above the income limit for personal allowance...
@@ -58,10 +95,51 @@ public class Government {
      * @return Annual class 1 NICs due
      */
     double class1NICsDue(double grossIncome) {
+        if (class1NICsTable != null) return class1NICsTable.value(grossIncome);
+        return exactClass1NICsDue(grossIncome);
+    }
+
+    /**
+     * Batch computation of the class 1 NICs due in one year for the first n gross annual incomes of an array, giving
+     * the same results as class1NICsDue for each of them
+     *
+     * @param grossIncomes Gross annual incomes in pounds
+     * @param class1NICs Array where to write the annual class 1 NICs due for each income, which can be the input array
+     * @param n Number of incomes to compute the class 1 NICs for
+     */
+    void class1NICsDue(double [] grossIncomes, double [] class1NICs, int n) {
+        if (class1NICsTable != null) {
+            class1NICsTable.values(grossIncomes, class1NICs, n);
+        } else {
+            for (int i = 0; i < n; i++) class1NICs[i] = exactClass1NICsDue(grossIncomes[i]);
+        }
+    }
+
+    private double exactClass1NICsDue(double grossIncome) {
         return bandedPercentage(grossIncome, data.Government.nationalInsurance.bands,
                 data.Government.nationalInsurance.rates, 0.0);
 	}
 
+    /**
+     * Find all gross incomes where the income tax can change its slope: the income limit for personal allowance and the
+     * income where the personal allowance reaches zero, as well as, for each band, the incomes where it starts being
+     * charged, either with the full personal allowance, within the personal allowance taper, or with no allowance
+     */
+    private double [] getIncomeTaxBreakpoints() {
+        double allowance = config.GOVERNMENT_GENERAL_PERSONAL_ALLOWANCE;
+        double limit = config.GOVERNMENT_INCOME_LIMIT_FOR_PERSONAL_ALLOWANCE;
+        Double [] bands = data.Government.tax.bands;
+        double [] breakpoints = new double[2 + 3*bands.length];
+        breakpoints[0] = limit;
+        breakpoints[1] = limit + 2.0*allowance;
+        for (int i = 0; i < bands.length; i++) {
+            breakpoints[2 + 3*i] = bands[i] + allowance;
+            breakpoints[3 + 3*i] = (2.0*(bands[i] + allowance) + limit)/3.0;
+            breakpoints[4 + 3*i] = bands[i];
+        }
+        return breakpoints;
+    }
+
     /**
      * Calculate a "banded percentage" on a value. A "banded percentage" is a way of calculating a non-linear function,
      * f(x), widely used by HMRC. The domain of values of f(x) is split into bands: from 0 to x1, from x1 to x2, etc.
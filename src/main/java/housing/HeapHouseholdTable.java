@@ -0,0 +1,99 @@
+package housing;
+
+/**************************************************************************************************
+ * On-heap storage backend for the household table, with one contiguous primitive array per
+ * variable, such that passes over a single variable for the whole population are tight loops
+ * over a contiguous array. Double columns beyond those kept in full precision are stored as float
+ * arrays.
+ *
+ * @author agent
+ *
+ *************************************************************************************************/
+public class HeapHouseholdTable extends HouseholdTable {
+
+    //------------------//
+    //----- Fields -----//
+    //------------------//
+
+    private int             nDoubleColumns; // Number of double columns kept in full precision
+    private double [][]     doubleColumns = new double[N_DOUBLE_COLUMNS][];
+    private float [][]      floatColumns = new float[N_DOUBLE_COLUMNS][]; // Only from nDoubleColumns on
+    private int [][]        intColumns = new int[N_INT_COLUMNS][];
+
+    //------------------------//
+    //----- Constructors -----//
+    //------------------------//
+
+    /**
+     * @param initialCapacity Number of rows to allocate initially, the table growing as needed beyond this number
+     * @param nDoubleColumns Number of double columns to keep in full precision, the rest being stored as floats
+     */
+    HeapHouseholdTable(int initialCapacity, int nDoubleColumns) {
+        super(initialCapacity);
+        this.nDoubleColumns = nDoubleColumns;
+        for (int column = 0; column < nDoubleColumns; column++) {
+            doubleColumns[column] = new double[Math.max(initialCapacity, 1)];
+        }
+        for (int column = nDoubleColumns; column < N_DOUBLE_COLUMNS; column++) {
+            floatColumns[column] = new float[Math.max(initialCapacity, 1)];
+        }
+        for (int column = 0; column < N_INT_COLUMNS; column++) {
+            intColumns[column] = new int[Math.max(initialCapacity, 1)];
+        }
+    }
+
+    //-------------------//
+    //----- Methods -----//
+    //-------------------//
+
+    @Override
+    double getDouble(int row, int column) {
+        return (column < nDoubleColumns) ? doubleColumns[column][row] : floatColumns[column][row];
+    }
+
+    @Override
+    void setDouble(int row, int column, double value) {
+        if (column < nDoubleColumns) {
+            doubleColumns[column][row] = value;
+        } else {
+            floatColumns[column][row] = (float)value;
+        }
+    }
+
+    @Override
+    int getInt(int row, int column) { return intColumns[column][row]; }
+
+    @Override
+    void setInt(int row, int column, int value) { intColumns[column][row] = value; }
+
+    @Override
+    void ensureCapacity(int capacity) {
+        int currentCapacity = intColumns[0].length;
+        if (capacity <= currentCapacity) return;
+        int newCapacity = Math.max(capacity, 2*currentCapacity);
+        for (int column = 0; column < nDoubleColumns; column++) {
+            double [] newColumn = new double[newCapacity];
+            System.arraycopy(doubleColumns[column], 0, newColumn, 0, size());
+            doubleColumns[column] = newColumn;
+        }
+        for (int column = nDoubleColumns; column < N_DOUBLE_COLUMNS; column++) {
+            float [] newColumn = new float[newCapacity];
+            System.arraycopy(floatColumns[column], 0, newColumn, 0, size());
+            floatColumns[column] = newColumn;
+        }
+        for (int column = 0; column < N_INT_COLUMNS; column++) {
+            int [] newColumn = new int[newCapacity];
+            System.arraycopy(intColumns[column], 0, newColumn, 0, size());
+            intColumns[column] = newColumn;
+        }
+    }
+
+    @Override
+    void copyRow(int from, int to) {
+        for (int column = 0; column < nDoubleColumns; column++) doubleColumns[column][to] = doubleColumns[column][from];
+        for (int column = nDoubleColumns; column < N_DOUBLE_COLUMNS; column++) {
+            floatColumns[column][to] = floatColumns[column][from];
+        }
+        for (int column = 0; column < N_INT_COLUMNS; column++) intColumns[column][to] = intColumns[column][from];
+    }
+}
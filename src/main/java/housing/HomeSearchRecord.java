@@ -0,0 +1,94 @@
+package housing;
+
+/**************************************************************************************************
+ * This class encapsulates the outcome of a household's home search, i.e., its options for buying
+ * and for renting and its probability of choosing the buying option, together with the market
+ * version and the household conditions the search was based on. This allows households to reuse
+ * their last search for as long as neither the market nor their own conditions move beyond the
+ * home search cache tolerance.
+ *
+ * @author agent
+ *
+ *************************************************************************************************/
+class HomeSearchRecord {
+
+    //------------------//
+    //----- Fields -----//
+    //------------------//
+
+    private RegionQualityPriceContainer     optionForBuying; // Null if the household cannot afford to buy anywhere
+    private RegionQualityPriceContainer     optionForRenting; // Null if the household always buys (BTL investors)
+    private double                          probabilityOfBuying; // Only used when both options are available
+    private double                          searchDesiredPurchasePrice; // As found at the search, before any re-capping
+
+    // Conditions on which the search was based
+    private int                             marketVersion;
+    private double                          monthlyGrossEmploymentIncome;
+    private double                          bankBalance;
+    private boolean                         isFirstTimeBuyer;
+
+    //------------------------//
+    //----- Constructors -----//
+    //------------------------//
+
+    HomeSearchRecord(Household h, int marketVersion, RegionQualityPriceContainer optionForBuying,
+                     RegionQualityPriceContainer optionForRenting, double probabilityOfBuying) {
+        this.optionForBuying = optionForBuying;
+        this.optionForRenting = optionForRenting;
+        this.probabilityOfBuying = probabilityOfBuying;
+        if (optionForBuying != null) searchDesiredPurchasePrice = optionForBuying.getDesiredPrice();
+        this.marketVersion = marketVersion;
+        this.monthlyGrossEmploymentIncome = h.getMonthlyGrossEmploymentIncome();
+        this.bankBalance = h.getBankBalance();
+        this.isFirstTimeBuyer = h.isFirstTimeBuyer();
+    }
+
+    //-------------------//
+    //----- Methods -----//
+    //-------------------//
+
+    /**
+     * Check whether this search can still be used by the household, that is, whether the market version is still the
+     * same and the household's income and bank balance have not moved, in relative terms, beyond the given tolerance.
+     * Note that bank balance changes are measured relative to the larger of the bank balance and the monthly gross
+     * employment income at the search, such that households with a zero or tiny bank balance can still reuse their
+     * search. A non-positive tolerance disables any reuse.
+     *
+     * @param h The household owning this search record
+     * @param marketVersion Current market version, as stamped by the geography
+     * @param tolerance Maximum relative change allowed in the household's income and bank balance
+     * @return True if the search can be reused, false if a new search is needed
+     */
+    boolean isValidFor(Household h, int marketVersion, double tolerance) {
+        return tolerance > 0.0
+                && this.marketVersion == marketVersion
+                && this.isFirstTimeBuyer == h.isFirstTimeBuyer()
+                && Math.abs(h.getMonthlyGrossEmploymentIncome() - monthlyGrossEmploymentIncome)
+                <= tolerance*Math.abs(monthlyGrossEmploymentIncome)
+                && Math.abs(h.getBankBalance() - bankBalance)
+                <= tolerance*Math.max(Math.abs(bankBalance), monthlyGrossEmploymentIncome);
+    }
+
+    /**
+     * Cap the desired purchase price of the buying option to the given maximum price, reusing the same option object
+     * instead of allocating a new one. Note that the cap is always applied to the price found at the search, such that
+     * caps from previous reuses do not accumulate
+     *
+     * @param maxPrice Maximum price currently available to the household
+     * @return The buying option, with its desired price capped, or null if the household cannot afford to buy anywhere
+     */
+    RegionQualityPriceContainer capOptionForBuying(double maxPrice) {
+        if (optionForBuying != null) {
+            optionForBuying.setDesiredPrice(Math.min(searchDesiredPurchasePrice, maxPrice));
+        }
+        return optionForBuying;
+    }
+
+    //----- Getter/setter methods -----//
+
+    RegionQualityPriceContainer getOptionForBuying() { return optionForBuying; }
+
+    RegionQualityPriceContainer getOptionForRenting() { return optionForRenting; }
+
+    double getProbabilityOfBuying() { return probabilityOfBuying; }
+}
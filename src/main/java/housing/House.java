@@ -21,6 +21,7 @@ public class House implements Comparable<House> {
 
     HouseOfferRecord    saleRecord;
     HouseOfferRecord    rentalRecord;
+    RentalAgreement     tenancy; // Rental agreement with the current tenant, null if not let
 
     private int         quality;
 
@@ -60,6 +61,8 @@ public class House implements Comparable<House> {
 
 	void resetRentalRecord() { rentalRecord = null; }
 
+	public RentalAgreement getTenancy() { return tenancy; }
+
 	public int getQuality() { return quality; }
 
     public Region getRegion() { return region; }
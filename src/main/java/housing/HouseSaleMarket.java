@@ -43,6 +43,7 @@ public class HouseSaleMarket extends HousingMarket {
 		buyer.completeHousePurchase(sale);
         region.regionalHousingMarketStats.recordSale(purchase, sale);
 		sale.getHouse().owner = buyer;
+		buyer.updateTenureFlags(); // Only now the buyer of a home is its owner
 	}
 
 	@Override
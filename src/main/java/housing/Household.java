@@ -1,11 +1,7 @@
 package housing;
 
-import java.util.Iterator;
-import java.util.Map;
-import java.util.Map.Entry;
-import java.util.TreeMap;
-
 import org.apache.commons.math3.random.MersenneTwister;
+import org.apache.commons.math3.random.RandomGenerator;
 
 /**************************************************************************************************
  * This represents a household who receives an income, consumes, saves and can buy, sell, let, and
@@ -26,22 +22,23 @@ public class Household implements IHouseOwner {
     public int                  id; // Only used for identifying households within the class TransactionRecorder
     public HouseholdBehaviour   behaviour; // Behavioural plugin
 
-    double                      incomePercentile; // Fixed for the whole lifetime of the household
+    int                         row = -1; // Row of this household at the household table, -1 once the household has died
+    int                         regionPosition = -1; // Position at its home region list, only valid with swap removal
+    int                         rosterPosition = -1; // Position at the roster of its age cohort, see Demographics
 
+    private HouseholdTable                  table; // Table holding the primitive state of all living households
     private Geography                       geography;
-    private Region                          jobRegion;
-    private Region                          homeRegion;
     private House                           home;
-    private Map<House, PaymentAgreement>    housePayments = new TreeMap<>(); // Houses owned and their payment agreements
-    private Map<House, RentalAgreement>     rentalContracts = new TreeMap<>(); // Houses rented out by this landlord and their payment agreements
+    private PaymentAgreementMap<PaymentAgreement>   housePayments = new PaymentAgreementMap<>(); // Houses owned and their payment agreements
+    private PaymentAgreementMap<RentalAgreement>    rentalContracts = new PaymentAgreementMap<>(); // Houses rented out by this landlord and their payment agreements
+    private HomeSearchRecord                homeSearchRecord; // Last home search, only kept if home search caching is enabled
     private Config                          config; // Private field to receive the Model's configuration parameters object
     private MersenneTwister                 rand; // Private field to receive the Model's random number generator
-    private double                          age; // Age of the household representative person
-    private double                          bankBalance;
-    private double                          annualGrossEmploymentIncome;
-    private double                          monthlyGrossEmploymentIncome;
-    private boolean                         isFirstTimeBuyer;
-    private boolean                         isBankrupt;
+    private int                             incomeAgeBin; // Age bin used to find the current employment income
+    private int                             wakeMonth = -1; // Last month with a calendar event for this household
+    private int                             homeSaleMonth = -1; // Month to put home for sale, if event-driven
+    private int                             nTenancies; // Tenancies started over all lives, stamping their end events
+    private boolean                         isNetTotalIncomeStale = true; // Whether to recompute net total income
 
     //------------------------//
     //----- Constructors -----//
@@ -52,23 +49,21 @@ public class Household implements IHouseOwner {
      * housing and with their "desired bank balance" in the bank
      */
     public Household(Config config, MersenneTwister rand, double age, Geography geography,
-                     Region jobRegion) {
+                     Region jobRegion, HouseholdTable table) {
+        this(config, rand, geography, table);
+        startBirth(age, jobRegion);
+        completeBirth(rand);
+        finishBirth();
+    }
+
+    /**
+     * Creates the storage for a household to be born later, through startBirth and completeBirth
+     */
+    Household(Config config, MersenneTwister rand, Geography geography, HouseholdTable table) {
         this.config = config;
         this.rand = rand;
-        this.age = age;
+        this.table = table;
         this.geography = geography;
-        this.jobRegion = jobRegion;
-        homeRegion = jobRegion; // Households are initially created at the region where they have a job
-        home = null;
-        isFirstTimeBuyer = true;
-        isBankrupt = false;
-        id = ++id_pool;
-        incomePercentile = this.rand.nextDouble();
-        behaviour = new HouseholdBehaviour(this.geography, incomePercentile);
-        // Find initial values for the annual and monthly gross employment income
-        annualGrossEmploymentIncome = data.EmploymentIncome.getAnnualGrossEmploymentIncome(age, incomePercentile);
-        monthlyGrossEmploymentIncome = annualGrossEmploymentIncome/config.constants.MONTHS_IN_YEAR;
-        bankBalance = data.Wealth.getDesiredBankBalance(getAnnualGrossTotalIncome(), behaviour.getPropensityToSave()); // Desired bank balance is used as initial value for actual bank balance
     }
 
     //-------------------//
@@ -77,6 +72,82 @@ public class Household implements IHouseOwner {
 
     //----- General methods -----//
 
+    /**
+     * Reuse the storage of this deceased household for a newborn household, with a new id and new behavioural
+     * parameters, drawing exactly the same random numbers, in the same order, as the constructor would. Note that the
+     * deceased household must have already transferred all its wealth and released its row at the household table
+     */
+    void reset(double age, Region jobRegion) {
+        startBirth(age, jobRegion);
+        completeBirth(rand);
+        finishBirth();
+    }
+
+    /**
+     * Take a new row at the household table and fill in the part of the primitive state of a newborn household which
+     * needs no random draws, clearing any state left by a deceased household whose storage is being reused. Since this
+     * modifies the household table, it must be called for one household at a time
+     */
+    void startBirth(double age, Region jobRegion) {
+        if (row >= 0 || !housePayments.isEmpty()) {
+            System.out.println("Strange: resetting a household which is still alive");
+        }
+        rentalContracts.clear();
+        homeSearchRecord = null;
+        isNetTotalIncomeStale = true;
+        wakeMonth = -1;
+        homeSaleMonth = -1;
+        row = table.add(this);
+        table.setBirthAge(row, age);
+        table.setBirthMonth(row, Model.getTime());
+        table.setBirthAgeBand(row, (int)((age - data.Demographics.getMonthlyAgeDistributionMinimum())
+                / data.Demographics.getMonthlyAgeDistributionBinWidth()));
+        table.setJobRegionID(row, jobRegion.getRegionID());
+        table.setHomeRegionID(row, jobRegion.getRegionID()); // Households are initially created at their job region
+        setHome(null);
+        table.setFlag(row, HouseholdTable.FIRST_TIME_BUYER, true);
+        table.setFlag(row, HouseholdTable.BANKRUPT, false);
+        id = ++id_pool;
+    }
+
+    /**
+     * Draw the income percentile and behaviour of a newborn household, after startBirth, and fill in the rest of its
+     * primitive state, except for its flags. Since all random numbers are drawn from the given generator and only the
+     * household's own row is modified, this can be called concurrently for different households, each with its own
+     * random generator
+     */
+    void completeBirth(RandomGenerator random) {
+        double age = getAge();
+        double incomePercentile = random.nextDouble();
+        if (config.COMPACT_HOUSEHOLD_STATE) incomePercentile = HouseholdTable.toCompactProbability(incomePercentile);
+        table.setIncomePercentile(row, incomePercentile);
+        if (behaviour == null) {
+            behaviour = new HouseholdBehaviour(geography, incomePercentile, random);
+        } else {
+            behaviour.reset(incomePercentile, random);
+        }
+        table.setPropensityToSave(row, behaviour.getPropensityToSave());
+        // Find initial values for the annual and monthly gross employment income
+        incomeAgeBin = data.EmploymentIncome.getAgeBin(age);
+        table.setAnnualGrossEmploymentIncome(row,
+                data.EmploymentIncome.getAnnualGrossEmploymentIncome(age, incomePercentile));
+        table.setMonthlyGrossEmploymentIncome(row,
+                table.getAnnualGrossEmploymentIncome(row)/config.constants.MONTHS_IN_YEAR);
+        updateMonthlyNetEmploymentIncome();
+        // Desired bank balance is used as initial value for actual bank balance
+        table.setBankBalance(row, data.Wealth.getDesiredBankBalance(getAnnualGrossTotalIncome(),
+                table.getPropensityToSave(row)));
+    }
+
+    /**
+     * Set the flags of a newborn household which depend on its behaviour, after completeBirth. Since flags are stored
+     * as bitsets shared by many households, this must be called for one household at a time
+     */
+    void finishBirth() {
+        table.setFlag(row, HouseholdTable.BTL_INVESTOR, behaviour.isPropertyInvestor());
+        updateTenureFlags();
+    }
+
     /**
      * Main simulation step for each household. They age, receive employment and other forms of income, make their rent
      * or mortgage payments, perform an essential consumption, make non-essential consumption decisions, manage their
@@ -86,107 +157,290 @@ public class Household implements IHouseOwner {
      * - Buy/sell/rent out properties if BTL investor
      */
     public void step() {
-        isBankrupt = false; // Delete bankruptcies from previous time step
-        // Update annual and monthly gross employment income
-        annualGrossEmploymentIncome = data.EmploymentIncome.getAnnualGrossEmploymentIncome(age, incomePercentile);
-        monthlyGrossEmploymentIncome = annualGrossEmploymentIncome/config.constants.MONTHS_IN_YEAR;
-        // Add monthly disposable income (net total income minus essential consumption and housing expenses) to bank balance
-        bankBalance += getMonthlyDisposableIncome();
-        // Consume according to gross annual income and capped by current bank balance (after disposable income has been added)
-        bankBalance -= behaviour.getDesiredConsumption(bankBalance, getAnnualGrossTotalIncome());
+        receiveIncomeAndPay();
+        consume(behaviour.getDesiredConsumption(table.getBankBalance(row), getAnnualGrossTotalIncome()));
+        manageAndDecide(null);
+    }
+
+    /**
+     * Event-driven version of the household step, where every household makes its monthly financial update (incomes,
+     * payments and consumption) but only those with a due calendar event or with a housing situation requiring monthly
+     * decisions go on to manage their houses and make housing decisions. Non-investor owner-occupiers draw the month
+     * they will decide to sell their home once, from the geometric distribution equivalent to the monthly probability
+     * of selling, instead of drawing a decision every month
+     */
+    void stepEventDriven() {
+        receiveIncomeAndPay();
+        consume(behaviour.getDesiredConsumption(table.getBankBalance(row), getAnnualGrossTotalIncome()));
+        int t = Model.getTime();
+        // If an owner-occupier without a pending date to sell its home, then draw it, scheduling it if in the future
+        if (isHomeowner() && !behaviour.isPropertyInvestor() && !home.isOnMarket() && homeSaleMonth < t) {
+            int months = behaviour.drawMonthsToSellHome();
+            if (months == HouseholdBehaviour.NEVER) {
+                homeSaleMonth = Integer.MAX_VALUE; // Never due, so no event is scheduled nor any date drawn again
+            } else if (months == 0) {
+                homeSaleMonth = t;
+                wakeMonth = t;
+            } else {
+                homeSaleMonth = t + months;
+                Model.eventCalendar.schedule(homeSaleMonth, EventCalendar.HOME_SALE, this, homeSaleMonth);
+            }
+        }
+        if (wakeMonth == t || !isDormant()) manageAndDecide(null);
+    }
+
+    /**
+     * Wake up this household for the current month, due to a calendar event of the given type, unless the household
+     * has died or the event is no longer valid, that is, unless it is the end of a tenancy other than the last one
+     * started (stamped with the number of tenancies started by this object, never reset, such that events of previous
+     * lives never match), or a home sale date other than the current one (stamped with that date). Mortgage maturities
+     * carry no stamp, as waking a household with nothing due only makes it check its houses and debts once more
+     */
+    void wake(int month, int type, int stamp) {
+        if (row < 0) return;
+        if (type == EventCalendar.TENANCY_END && stamp != nTenancies) return;
+        if (type == EventCalendar.HOME_SALE && stamp != homeSaleMonth) return;
+        wakeMonth = month;
+    }
+
+    /**
+     * A household is dormant if it has nothing to manage nor decide unless woken by a calendar event, that is, if it
+     * owns no house other than its home and either it is renting, in which case it only needs to act at the end of its
+     * tenancy, or it is a non-investor owner-occupier whose home is on neither market, in which case it only needs to
+     * act when its home sale date is due. Debts left on houses sold before paying off their mortgages do not prevent
+     * dormancy, as they can only be closed at the maturity of the mortgage
+     */
+    private boolean isDormant() {
+        if (home == null) return false;
+        for (int i = 0; i < housePayments.size(); i++) {
+            if (housePayments.getHouse(i).owner == this && housePayments.getHouse(i) != home) return false;
+        }
+        if (home.owner != this) return true;
+        return !behaviour.isPropertyInvestor() && !home.isOnMarket() && !home.isOnRentalMarket();
+    }
+
+    /**
+     * First part of the household step: delete bankruptcies from the previous time step, update employment incomes,
+     * and add monthly disposable income to the bank balance
+     */
+    void receiveIncomeAndPay() {
+        double monthlyIncomeAfterHousing = receiveIncomeAndPayHousing();
+        // Add monthly disposable income (net total income minus essential consumption, housing expenses and commuting
+        // fee) to bank balance
+        table.setBankBalance(row, table.getBankBalance(row)
+                + (monthlyIncomeAfterHousing - getMonthlyCommutingFee()));
+    }
+
+    /**
+     * Delete bankruptcies from the previous time step, update employment incomes and make housing payments, without
+     * updating the bank balance, such that disposable income can be added to it separately
+     *
+     * @return Monthly net total income minus essential consumption and housing payments
+     */
+    double receiveIncomeAndPayHousing() {
+        receiveIncome();
+        return getMonthlyIncomeAfterHousing();
+    }
+
+    /**
+     * Delete bankruptcies from the previous time step and update employment incomes, as the first part of
+     * receiveIncomeAndPayHousing, such that batches of households can update their net total incomes in between
+     */
+    void receiveIncome() {
+        table.setFlag(row, HouseholdTable.BANKRUPT, false); // Delete bankruptcies from previous time step
+        // Update annual and monthly gross employment income, which only change when the household moves to a new age
+        // bin, and then net employment income, which depends on it
+        int ageBin = data.EmploymentIncome.getAgeBin(getAge());
+        if (ageBin != incomeAgeBin) {
+            incomeAgeBin = ageBin;
+            double previousMonthlyGrossEmploymentIncome = table.getMonthlyGrossEmploymentIncome(row);
+            table.setAnnualGrossEmploymentIncome(row, data.EmploymentIncome.getAnnualGrossEmploymentIncome(
+                    getAge(), table.getIncomePercentile(row)));
+            table.setMonthlyGrossEmploymentIncome(row,
+                    table.getAnnualGrossEmploymentIncome(row)/config.constants.MONTHS_IN_YEAR);
+            if (table.getMonthlyGrossEmploymentIncome(row) != previousMonthlyGrossEmploymentIncome) {
+                updateMonthlyNetEmploymentIncome();
+            }
+        }
+    }
+
+    /**
+     * Second part of the household step: consume the given non-essential consumption, found according to gross annual
+     * income and capped by current bank balance (after disposable income has been added), and deal with bankruptcies
+     */
+    void consume(double consumption) {
+        table.setBankBalance(row, table.getBankBalance(row) - consumption);
         // Deal with bankruptcies
         // TODO: Improve bankruptcy procedures (currently, simple cash injection), such as terminating contracts!
-        if (bankBalance < 0.0) {
-            bankBalance = 1.0;
-            isBankrupt = true;
-        }
-        // Manage owned properties and close debts on previously owned properties. To this end, first, create an
-        // iterator over the house-paymentAgreement pairs at the household's housePayments object
-        Iterator<Entry<House, PaymentAgreement>> paymentIt = housePayments.entrySet().iterator();
-        Entry<House, PaymentAgreement> entry;
+        if (table.getBankBalance(row) < 0.0) {
+            table.setBankBalance(row, 1.0);
+            table.setFlag(row, HouseholdTable.BANKRUPT, true);
+        }
+    }
+
+    /**
+     * Alternative to consume for households whose consumption and bankruptcy have been dealt with by array kernels
+     */
+    void setBudgetOutcome(double bankBalance, boolean bankrupt) {
+        table.setBankBalance(row, bankBalance);
+        if (bankrupt) table.setFlag(row, HouseholdTable.BANKRUPT, true);
+    }
+
+    /**
+     * Third part of the household step: manage owned properties, close debts on previously owned properties, and make
+     * housing decisions
+     *
+     * @param batch Batch with the sale price updates and home sale decisions already drawn for this household's houses,
+     *              or null to draw them here
+     */
+    void manageAndDecide(HouseholdBatch batch) {
+        // Manage owned properties and close debts on previously owned properties. To this end, iterate over the
+        // house-paymentAgreement pairs at the household's housePayments object, in house id order...
         House h;
         PaymentAgreement payment;
-        // Iterate over these house-paymentAgreement pairs...
-        while (paymentIt.hasNext()) {
-            entry = paymentIt.next();
-            h = entry.getKey();
-            payment = entry.getValue();
+        int i = 0;
+        while (i < housePayments.size()) {
+            h = housePayments.getHouse(i);
+            payment = housePayments.getAgreement(i);
             // ...if the household is the owner of the house, then manage it
             if (h.owner == this) {
-                manageHouse(h);
+                manageHouse(h, batch);
             // ...otherwise, if the household is not the owner nor the resident, then it is an old debt due to
             // the household's inability to pay the remaining principal off after selling a property...
             } else if (h.resident != this) {
                 MortgageAgreement mortgage = (MortgageAgreement) payment;
                 // ...remove this type of houses from payments as soon as the household pays the debt off
                 if ((payment.nPayments == 0) & (mortgage.principal == 0.0)) {
-                    paymentIt.remove();
+                    housePayments.removeAt(i);
+                    updateTenureFlags();
+                    continue;
                 }
             }
+            i++;
         }
         // Make housing decisions depending on current housing state
         if (isInSocialHousing()) {
             bidForAHome(); // When BTL households are born, they enter here the first time and until they manage to buy a home!
         } else if (isRenting()) {
-            if (housePayments.get(home).nPayments == 0) { // End of rental period for this tenant
+            if (home.tenancy.nPayments == 0) { // End of rental period for this tenant
                 endTenancy();
                 bidForAHome();
             }
         } else if (behaviour.isPropertyInvestor()) { // Only BTL investors who already own a home enter here
-            Region chosenInvestmentRegion = behaviour.decideWhereToBuyInvestmentProperty(this);
-            if (chosenInvestmentRegion != null) {
-                chosenInvestmentRegion.houseSaleMarket.BTLbid(this,
-                        behaviour.btlPurchaseBid(this, chosenInvestmentRegion));
-            }
-            // TODO: Need to call here to an equivalent to the old countBTLBidsAboveExpAvSalePrice(), not implemented yet
+            bidForAnInvestmentProperty();
         } else if (!isHomeowner()){
             System.out.println("Strange: this household is not a type I recognize");
         }
     }
 
     /**
-     * Subtracts the essential necessary consumption, housing expenses (mortgage and rental payments), and commuting
-     * fees from the net total income (employment income plus property income minus taxes)
+     * Submit to the given batch the owned houses for which manageAndDecide will need random decisions: houses already
+     * on the sale market (and not just inherited), whose price is to be rethought, and the home, if owned and not on
+     * the market, which is to be decided whether to sell. Houses are submitted in the same order manageAndDecide will
+     * manage them
+     */
+    void submitHouseDecisions(HouseholdBatch batch) {
+        for (int i = 0; i < housePayments.size(); i++) {
+            House h = housePayments.getHouse(i);
+            if (h.owner != this) continue;
+            HouseOfferRecord forSale = h.getSaleRecord();
+            if (forSale != null) {
+                if (Model.getTime() > forSale.gettInitialListing()) batch.addSaleToRethink(forSale);
+            } else if (h == home) {
+                batch.addHomeToDecide(h, behaviour.isPropertyInvestor());
+            }
+        }
+    }
+
+    /**
+     * Subtracts the essential necessary consumption and housing expenses (mortgage and rental payments), making these
+     * payments, from the net total income (employment income plus property income minus taxes)
      */
-    private double getMonthlyDisposableIncome() {
+    double getMonthlyIncomeAfterHousing() {
         // Start with net monthly income
-        double monthlyDisposableIncome = getMonthlyNetTotalIncome();
+        double monthlyIncomeAfterHousing = getMonthlyNetTotalIncome();
         // Subtract essential, necessary consumption
         // TODO: ESSENTIAL_CONSUMPTION_FRACTION is not explained in the paper, all support is said to be consumed
-        monthlyDisposableIncome -= config.ESSENTIAL_CONSUMPTION_FRACTION*config.GOVERNMENT_MONTHLY_INCOME_SUPPORT;
+        monthlyIncomeAfterHousing -= config.ESSENTIAL_CONSUMPTION_FRACTION*config.GOVERNMENT_MONTHLY_INCOME_SUPPORT;
         // Subtract housing consumption
-        for(PaymentAgreement payment: housePayments.values()) {
-            monthlyDisposableIncome -= payment.makeMonthlyPayment();
+        for (int i = 0; i < housePayments.size(); i++) {
+            PaymentAgreement payment = housePayments.getAgreement(i);
+            double amount = payment.makeMonthlyPayment();
+            monthlyIncomeAfterHousing -= amount;
+            // If this was the last payment, then it changes the finance costs of the household, if a mortgage, or those
+            // of its landlord, if a tenancy
+            if (amount != 0.0 && payment.nPayments == 0) {
+                if (payment instanceof RentalAgreement) {
+                    if (((RentalAgreement) payment).landlord instanceof Household) {
+                        ((Household) ((RentalAgreement) payment).landlord).invalidateMonthlyNetTotalIncome();
+                    }
+                } else {
+                    invalidateMonthlyNetTotalIncome();
+                }
+            }
         }
-        // If the household has a home (whether owned or rented), subtract commuting consumption (monthly fee, not cost)
-        if (home != null) monthlyDisposableIncome -= getMonthlyCommutingFee(home.region);
-        return monthlyDisposableIncome;
+        return monthlyIncomeAfterHousing;
     }
 
     /**
      * Subtracts the monthly aliquot part of all due taxes from the monthly gross total income. Note that only income
      * tax on employment and rental income and national insurance contributions are implemented (no capital gains tax)!
+     * This is kept at the income ledger, only recomputed if marked as stale since it was last computed
      */
     private double getMonthlyNetTotalIncome() {
-        return getMonthlyGrossTotalIncome()
-                - (Model.government.incomeTaxDue(getAnnualGrossTotalIncome() - getAnnualFinanceCosts())  // Income tax (with finance costs tax relief)
-                + Model.government.class1NICsDue(annualGrossEmploymentIncome))  // National insurance contributions
-                /config.constants.MONTHS_IN_YEAR;
+        if (isNetTotalIncomeStale) {
+            setMonthlyNetTotalIncome(Model.government.incomeTaxDue(getAnnualTaxableIncome()),
+                    Model.government.class1NICsDue(getAnnualGrossEmploymentIncome()));
+        }
+        return table.getMonthlyNetTotalIncome(row);
     }
 
+    /**
+     * Store the monthly net total income at the income ledger, given the annual income tax due on the annual taxable
+     * income and the annual class 1 NICs due on the annual gross employment income, as computed in batches for many
+     * households at once (see HouseholdBatch), or one at a time by getMonthlyNetTotalIncome
+     */
+    void setMonthlyNetTotalIncome(double incomeTax, double class1NICs) {
+        table.setMonthlyNetTotalIncome(row, getMonthlyGrossTotalIncome()
+                - (incomeTax + class1NICs)/config.constants.MONTHS_IN_YEAR);
+        isNetTotalIncomeStale = false;
+    }
+
+    /**
+     * @return Whether the monthly net total income at the income ledger needs to be recomputed
+     */
+    boolean isNetTotalIncomeStale() { return isNetTotalIncomeStale; }
+
+    /**
+     * Annual income subject to income tax, that is, annual gross total income minus finance costs (tax relief)
+     */
+    double getAnnualTaxableIncome() { return getAnnualGrossTotalIncome() - getAnnualFinanceCosts(); }
+
+    /**
+     * Mark the monthly net total income at the income ledger as stale, such that it is recomputed the next time it is
+     * needed. This must be called whenever any of its inputs changes, that is, employment or rental income, or the
+     * finance costs of the household, which depend on its mortgages, on its ownership of the mortgaged houses, on their
+     * residents, and on whether these residents have payments left (see getAnnualFinanceCosts)
+     */
+    void invalidateMonthlyNetTotalIncome() { isNetTotalIncomeStale = true; }
+
     /**
      * For the purpose of affordability checks for non-BTL households, a monthly net employment income is needed. This
      * makes sure that no rental income is accounted for, which non-BTL households can temporarily receive as a result
      * of temporarily renting out inherited properties while they manage to sell them. Thus, this subtracts the monthly
      * aliquot part of all due taxes (without any finance cost relief) from the monthly gross employment income
      * (ignoring any rental income). Note that only income tax on employment income and national insurance contributions
-     * are implemented (no capital gains tax)!
+     * are implemented (no capital gains tax)! This is kept at the income ledger, updated whenever the household's
+     * employment income changes
      */
-    double getMonthlyNetEmploymentIncome() {
-        return getMonthlyGrossEmploymentIncome()
-                - (Model.government.incomeTaxDue(annualGrossEmploymentIncome)  // Income tax
-                + Model.government.class1NICsDue(annualGrossEmploymentIncome))  // National insurance contributions
-                /config.constants.MONTHS_IN_YEAR;
+    double getMonthlyNetEmploymentIncome() { return table.getMonthlyNetEmploymentIncome(row); }
+
+    private void updateMonthlyNetEmploymentIncome() {
+        table.setMonthlyNetEmploymentIncome(row, getMonthlyGrossEmploymentIncome()
+                - (Model.government.incomeTaxDue(getAnnualGrossEmploymentIncome())  // Income tax
+                + Model.government.class1NICsDue(getAnnualGrossEmploymentIncome()))  // National insurance contributions
+                /config.constants.MONTHS_IN_YEAR);
+        invalidateMonthlyNetTotalIncome();
     }
 
     /**
@@ -196,17 +450,26 @@ public class Household implements IHouseOwner {
      */
     private double getAnnualFinanceCosts() {
         double financeCosts = 0.0;
-        for (Map.Entry<House, PaymentAgreement> entry : housePayments.entrySet()) {
-            House house = entry.getKey();
-            PaymentAgreement payment = entry.getValue();
+        for (int i = 0; i < housePayments.size(); i++) {
+            House house = housePayments.getHouse(i);
+            PaymentAgreement payment = housePayments.getAgreement(i);
             if (payment instanceof MortgageAgreement && house.owner == this && payment.nextPayment() != 0.0
-                    && house.resident != null && house.resident.getHousePayments().get(house).nextPayment() != 0.0) {
+                    && house.resident != null && getResidentPayment(house).nextPayment() != 0.0) {
                 financeCosts += payment.nextPayment();
             }
         }
         return financeCosts*config.constants.MONTHS_IN_YEAR;
     }
 
+    /**
+     * Find the payment agreement of the resident of a house owned by this household, that is, this household's own
+     * mortgage if it lives in the house, or otherwise the tenancy linked from the house itself
+     */
+    private PaymentAgreement getResidentPayment(House house) {
+        if (house.resident == this) return housePayments.get(house);
+        return house.tenancy;
+    }
+
     /**
      * Annualised gross total income, i.e., both employment and rental income
      */
@@ -215,17 +478,27 @@ public class Household implements IHouseOwner {
     /**
      * Adds up all sources of (gross) income on a monthly basis, i.e., both employment and rental income
      */
-    public double getMonthlyGrossTotalIncome() { return monthlyGrossEmploymentIncome + getMonthlyGrossRentalIncome(); }
+    public double getMonthlyGrossTotalIncome() {
+        return table.getMonthlyGrossEmploymentIncome(row) + table.getMonthlyGrossRentalIncome(row);
+    }
+
+    /**
+     * This month's rental income from all currently owned and rented properties, as kept at the income ledger
+     */
+    public double getMonthlyGrossRentalIncome() { return table.getMonthlyGrossRentalIncome(row); }
 
     /**
-     * Adds up this month's rental income from all currently owned and rented properties
+     * Adds up this month's rental income from all currently owned and rented properties. This must be called whenever a
+     * rental contract starts or ends. Note that rental agreements only run out of payments when their tenants make
+     * their last payment, and these tenants then immediately end their tenancy, thus updating the ledger again
      */
-    public double getMonthlyGrossRentalIncome() {
+    private void updateMonthlyGrossRentalIncome() {
         double monthlyGrossRentalIncome = 0.0;
-        for(RentalAgreement rentalAgreement: rentalContracts.values()) {
-            monthlyGrossRentalIncome += rentalAgreement.nextPayment();
+        for (int i = 0; i < rentalContracts.size(); i++) {
+            monthlyGrossRentalIncome += rentalContracts.getAgreement(i).nextPayment();
         }
-        return monthlyGrossRentalIncome;
+        table.setMonthlyGrossRentalIncome(row, monthlyGrossRentalIncome);
+        invalidateMonthlyNetTotalIncome();
     }
 
     //----- Methods for house owners -----//
@@ -238,15 +511,17 @@ public class Household implements IHouseOwner {
      * - if the house is up for rent, rethink the rent demanded
      *
      * @param house A house owned by the household
+     * @param batch Batch with the sale price update or home sale decision already drawn for this house, or null
      */
-    private void manageHouse(House house) {
+    private void manageHouse(House house, HouseholdBatch batch) {
         // If house is for sale (on sale market)...
         HouseOfferRecord forSale = house.getSaleRecord();
         if (forSale != null) {
             // ...and it has not just been inherited...
             if (Model.getTime() > forSale.gettInitialListing()) {
                 // ...then update its price, if the new price is above the mortgage debt on this house
-                double newPrice = behaviour.rethinkHouseSalePrice(forSale);
+                double newPrice = (batch != null) ? batch.nextSalePrice(this, forSale)
+                        : behaviour.rethinkHouseSalePrice(forSale);
                 if (newPrice > mortgageFor(house).principal) {
                     house.region.houseSaleMarket.updateOffer(forSale, newPrice);
                 // ...otherwise, remove the offer from the sale market (note that investment properties will continue to be rented out)
@@ -255,7 +530,10 @@ public class Household implements IHouseOwner {
                 }
             }
         // Otherwise, if the house is not currently for sale, decide whether to sell it or not
-        } else if (decideToSellHouse(house)) putHouseForSale(house);
+        } else if ((batch != null && house == home) ? batch.nextSellHomeDecision(this, house)
+                : decideToSellHouse(house)) {
+            putHouseForSale(house);
+        }
 
         // If house is for rent (on rental market), and it has not just been inherited...
         HouseOfferRecord forRent = house.getRentalRecord();
@@ -299,6 +577,7 @@ public class Household implements IHouseOwner {
      * Put house on rental market if buy-to-let and no tenant.
      ********************************************************/
     void completeHousePurchase(HouseOfferRecord sale) {
+        invalidateMonthlyNetTotalIncome(); // Finance costs change with new mortgages and owned or occupied houses
         if(isRenting()) { // give immediate notice to landlord and move out
             if(sale.getHouse().resident != null) System.out.println("Strange: my new house has someone in it!");
             if(home == sale.getHouse()) {
@@ -312,8 +591,8 @@ public class Household implements IHouseOwner {
         if(mortgage == null) {
             // TODO: need to either provide a way for house sales to fall through or to ensure that pre-approvals are always satisfiable
             System.out.println("Can't afford to buy house: strange");
-            System.out.println("Bank balance is "+bankBalance);
-            System.out.println("Annual income is "+ monthlyGrossEmploymentIncome *config.constants.MONTHS_IN_YEAR);
+            System.out.println("Bank balance is "+table.getBankBalance(row));
+            System.out.println("Annual income is "+ table.getAnnualGrossEmploymentIncome(row));
             if(isRenting()) System.out.println("Is renting");
             if(isHomeowner()) System.out.println("Is homeowner");
             if(isInSocialHousing()) System.out.println("Is homeless");
@@ -321,20 +600,21 @@ public class Household implements IHouseOwner {
             if(behaviour.isPropertyInvestor()) System.out.println("Is investor");
             System.out.println("House owner = "+ sale.getHouse().owner);
             System.out.println("me = "+this);
+            // The sale has already been completed on the seller's side, so the model cannot go on consistently
+            System.exit(0);
         } else {
-            bankBalance -= mortgage.downPayment;
+            table.setBankBalance(row, table.getBankBalance(row) - mortgage.downPayment);
             housePayments.put(sale.getHouse(), mortgage);
+            updateTenureFlags();
             // If household doesn't have a home, then it moves in to the new house
             if (home == null) {
                 // If new home is in a region different from the current home region...
-                if (sale.getHouse().region != homeRegion) {
+                if (sale.getHouse().region != getHomeRegion()) {
                     // ...then the household must first move to the new region...
-                    homeRegion.households.remove(this);
-                    homeRegion = sale.getHouse().region;
-                    homeRegion.households.add(this);
+                    moveToRegion(sale.getHouse().region);
                 }
                 // ...and then move in to the house
-                home = sale.getHouse();
+                setHome(sale.getHouse());
                 sale.getHouse().resident = this;
             } else if (sale.getHouse().resident == null) { // put empty buy-to-let house on rental market
                 sale.getHouse().region.houseRentalMarket.offer(sale.getHouse(),
@@ -342,7 +622,7 @@ public class Household implements IHouseOwner {
             } else {
                 System.out.println("Strange: Bought a home with a resident");
             }
-            isFirstTimeBuyer = false;
+            table.setFlag(row, HouseholdTable.FIRST_TIME_BUYER, false);
         }
     }
 
@@ -350,14 +630,16 @@ public class Household implements IHouseOwner {
      * Do all stuff necessary when this household sells a house
      ********************************************************/
     public void completeHouseSale(HouseOfferRecord sale) {
+        invalidateMonthlyNetTotalIncome(); // Finance costs change with mortgages and owned or occupied houses
         // First, receive money from sale
-        bankBalance += sale.getPrice();
+        table.setBankBalance(row, table.getBankBalance(row) + sale.getPrice());
         // Second, find mortgage object and pay off as much outstanding debt as possible given bank balance
         MortgageAgreement mortgage = mortgageFor(sale.getHouse());
-        bankBalance -= mortgage.payoff(bankBalance);
+        table.setBankBalance(row, table.getBankBalance(row) - mortgage.payoff(table.getBankBalance(row)));
         // Third, if there is no more outstanding debt, remove the house from the household's housePayments object
         if (mortgage.nPayments == 0) {
             housePayments.remove(sale.getHouse());
+            updateTenureFlags();
             // TODO: Warning, if bankBalance is not enough to pay mortgage back, then the house stays in housePayments,
             // TODO: consequences to be checked. Looking forward, properties and payment agreements should be kept apart
         }
@@ -368,11 +650,12 @@ public class Household implements IHouseOwner {
         // Fifth, if the house is the household's home, then the household moves out and becomes temporarily homeless...
         if (sale.getHouse() == home) {
             home.resident = null;
-            home = null;
+            setHome(null);
         // ...otherwise, if the house has a resident, it must be a renter, who must get evicted, also the rental income
         // corresponding to this tenancy must be subtracted from the owner's monthly rental income
         } else if (sale.getHouse().resident != null) {
             rentalContracts.remove(sale.getHouse());
+            updateMonthlyGrossRentalIncome();
             sale.getHouse().resident.getEvicted();
         }
     }
@@ -392,6 +675,7 @@ public class Household implements IHouseOwner {
         if(h.isOnRentalMarket()) System.out.println("Strange: got endOfLettingAgreement on house on rental market");
         // Remove the old rental contract from the landlord's list of rental contracts
         rentalContracts.remove(h);
+        updateMonthlyGrossRentalIncome();
         // Put house back on rental market
         h.region.houseRentalMarket.offer(h, behaviour.buyToLetRent(h.getQuality(), h.region), false);
     }
@@ -402,10 +686,12 @@ public class Household implements IHouseOwner {
      * inform landlord and delete rental agreement.
      **********************************************************/
     private void endTenancy() {
+        RentalAgreement tenancy = home.tenancy;
         home.resident = null;
-        home.owner.endOfLettingAgreement(home, housePayments.get(home));
+        home.tenancy = null;
+        tenancy.landlord.endOfLettingAgreement(home, tenancy);
         housePayments.remove(home);
-        home = null;
+        setHome(null);
     }
     
     /*** Landlord has told this household to get out: leave without informing landlord */
@@ -418,7 +704,8 @@ public class Household implements IHouseOwner {
         }
         housePayments.remove(home);
         home.resident = null;
-        home = null;        
+        home.tenancy = null;
+        setHome(null);
     }
 
     /**
@@ -432,27 +719,56 @@ public class Household implements IHouseOwner {
         if (sale.getHouse().owner == this) System.out.println("Strange: I'm trying to rent a house I own!");
         if (home != null) System.out.println("Strange: I'm renting a house but not homeless");
         if (sale.getHouse().resident != null) System.out.println("Strange: tenant moving into an occupied house");
-        // Create a new rental agreement with the agreed price and with a random length between a minimum and a maximum
-        RentalAgreement rent = new RentalAgreement();
+        // Create a new rental agreement, linking house, landlord and tenant, with the agreed price and with a random
+        // length between a minimum and a maximum
+        RentalAgreement rent = new RentalAgreement(sale.getHouse(), this);
         rent.monthlyPayment = sale.getPrice();
         rent.nPayments = config.TENANCY_LENGTH_AVERAGE + rand.nextInt(2*config.TENANCY_LENGTH_EPSILON + 1)
                 - config.TENANCY_LENGTH_EPSILON;
         // Add the rental agreement to the house payments object of the tenant household
         housePayments.put(sale.getHouse(), rent);
+        // If event-driven, schedule the end of the tenancy, the month the last rental payment is made
+        if (Model.eventCalendar != null) {
+            Model.eventCalendar.schedule(Model.getTime() + rent.nPayments, EventCalendar.TENANCY_END, this,
+                    ++nTenancies);
+        }
         // If the tenant's new home is in a region different from its current home region...
-        if (sale.getHouse().region != homeRegion) {
+        if (sale.getHouse().region != getHomeRegion()) {
             // ...then first move the household to the new region...
-            homeRegion.households.remove(this);
-            homeRegion = sale.getHouse().region;
-            homeRegion.households.add(this);
+            moveToRegion(sale.getHouse().region);
         }
         // ...and then set the house as the tenant's home and the tenant as the house's resident
-        home = sale.getHouse();
+        setHome(sale.getHouse());
         sale.getHouse().resident = this;
+        sale.getHouse().tenancy = rent;
         // Return the rental agreement for passing it to the landlord
         return rent;
     }
 
+    /**
+     * Bid for housing at the initial allocation of the housing stock (see Geography), before any other decision is
+     * made: households in social housing bid for a home, as at their monthly step, and buy-to-let investors who
+     * already own a home bid for an investment property
+     */
+    void bidForInitialHousing() {
+        if (isInSocialHousing()) {
+            bidForAHome();
+        } else if (behaviour.isPropertyInvestor() && isHomeowner()) {
+            bidForAnInvestmentProperty();
+        }
+    }
+
+    /**
+     * Decide where to buy an investment property, if anywhere, and bid on the house sale market of that region
+     */
+    private void bidForAnInvestmentProperty() {
+        Region chosenInvestmentRegion = behaviour.decideWhereToBuyInvestmentProperty(this);
+        if (chosenInvestmentRegion != null) {
+            chosenInvestmentRegion.houseSaleMarket.BTLbid(this, behaviour.btlPurchaseBid(this, chosenInvestmentRegion));
+        }
+        // TODO: Need to call here to an equivalent to the old countBTLBidsAboveExpAvSalePrice(), not implemented yet
+    }
+
     /**
      * Decide whether to bid on the house sale market or the rental market and where. This is an "intensity of choice"
      * decision (sigma function) on the cost of owning in the optimal region for this household (there where it can
@@ -460,12 +776,62 @@ public class Household implements IHouseOwner {
      * cheapest region for that same quality for this household (there where the price of this quality is the cheapest
      * taking into account commuting costs), with COST_OF_RENTING being an intrinsic psychological cost of not owning.
      * Note the use of max to refer to maximum quality in a given region while optimal refers to the maximum quality
-     * among all regions.
+     * among all regions. If home search caching is enabled, the household reuses its last search for as long as
+     * neither the market version nor its own conditions have moved beyond the home search cache tolerance.
      */
     private void bidForAHome() {
-        // Declare variables
+        // Reuse the last home search if still valid, otherwise run a new one (and store it if caching is enabled)
+        HomeSearchRecord search = homeSearchRecord;
         RegionQualityPriceContainer optimalOptionForBuying;
         RegionQualityPriceContainer optimalOptionForRenting;
+        if (search == null || !search.isValidFor(this, geography.getMarketSnapshot().getVersion(),
+                config.HOME_SEARCH_CACHE_TOLERANCE)) {
+            search = searchForAHome();
+            if (config.HOME_SEARCH_CACHE_TOLERANCE > 0.0) homeSearchRecord = search;
+            optimalOptionForBuying = search.getOptionForBuying();
+        } else {
+            // When reusing a search, its desired purchase price must still be capped to the maximum mortgage currently
+            // available to the household, as its conditions might have moved within tolerance
+            optimalOptionForBuying = search.getOptionForBuying();
+            if (optimalOptionForBuying != null) {
+                optimalOptionForBuying = search.capOptionForBuying(Model.bank.getMaxMortgage(table.getBankBalance(row),
+                        table.getAnnualGrossEmploymentIncome(row),
+                        (getMonthlyNetEmploymentIncome() - getMonthlyCommutingFee(optimalOptionForBuying.getRegion())),
+                        isFirstTimeBuyer(), true));
+            }
+        }
+        optimalOptionForRenting = search.getOptionForRenting();
+        // If household cannot afford to buy anywhere, then bid in the house rental market for the desired rent price
+        if (optimalOptionForBuying == null) {
+            optimalOptionForRenting.getRegion().houseRentalMarket.bid(this,
+                    optimalOptionForRenting.getDesiredPrice());
+        // If household has no rental option (potential buy-to-let investors always buy), then bid in the house sale
+        // market for the capped desired price
+        } else if (optimalOptionForRenting == null) {
+            optimalOptionForBuying.getRegion().houseSaleMarket.bid(this, optimalOptionForBuying.getDesiredPrice());
+        // Otherwise, decide between the purchase and the rental options...
+        } else if (rand.nextDouble() < search.getProbabilityOfBuying()) {
+            // ...if buying, bid in the house sale market for the capped desired price
+            optimalOptionForBuying.getRegion().houseSaleMarket.bid(this, optimalOptionForBuying.getDesiredPrice());
+        } else {
+            // ...if renting, bid in the house rental market for the desired rent price
+            optimalOptionForRenting.getRegion().houseRentalMarket.bid(this,
+                    optimalOptionForRenting.getDesiredPrice());
+        }
+        // TODO: Need to call here to an equivalent to the old countNonBTLBidsAboveExpAvSalePrice(), not implemented yet
+    }
+
+    /**
+     * Search for the household's optimal options for buying and for renting a home, as well as its probability of
+     * choosing the buying option when both are available
+     *
+     * @return HomeSearchRecord with the outcome of the search and the conditions it was based on
+     */
+    private HomeSearchRecord searchForAHome() {
+        // Declare variables
+        RegionQualityPriceContainer optimalOptionForBuying;
+        RegionQualityPriceContainer optimalOptionForRenting = null;
+        double probabilityOfBuying = 0.0;
         // Find optimal option for buying (region where the household could afford the highest quality band, taking into
         // account commuting costs, among all possible regions)
         optimalOptionForBuying = behaviour.findOptimalPurchaseRegion(this);
@@ -476,9 +842,6 @@ public class Household implements IHouseOwner {
             if (optimalOptionForBuying == null) {
                 optimalOptionForBuying = behaviour.findCheapestPurchaseRegion(this);
             }
-            // ...bid in the house sale market for the capped desired price
-            optimalOptionForBuying.getRegion().houseSaleMarket.bid(this,
-                    optimalOptionForBuying.getDesiredPrice());
         // Otherwise, for normal households...
         } else {
             // ...if household cannot afford minimum quality anywhere (optimal option for buying is null), then it tries
@@ -491,27 +854,18 @@ public class Household implements IHouseOwner {
                 if (optimalOptionForRenting == null) {
                     optimalOptionForRenting = behaviour.findCheapestRentalRegion(this);
                 }
-                // ...bid in the house rental market for the desired rent price
-                optimalOptionForRenting.getRegion().houseRentalMarket.bid(this,
-                        optimalOptionForRenting.getDesiredPrice());
             // ...otherwise, if the normal household can afford to buy somewhere...
             } else {
                 // ...then find the region where the same quality has the cheapest rental cost (including commuting)
                 optimalOptionForRenting =
                         behaviour.findCheapestRentalRegionForQuality(optimalOptionForBuying.getQuality(), this);
-                // ...and decide between the purchase and the rental options
-                if (behaviour.decideRentOrPurchase(optimalOptionForBuying, optimalOptionForRenting, this)) {
-                    // ...if buying, bid in the house sale market for the capped desired price
-                    optimalOptionForBuying.getRegion().houseSaleMarket.bid(this,
-                            optimalOptionForBuying.getDesiredPrice());
-                } else {
-                    // ...if renting, bid in the house rental market for the desired rent price
-                    optimalOptionForRenting.getRegion().houseRentalMarket.bid(this,
-                            optimalOptionForRenting.getDesiredPrice());
-                }
+                // ...and find the probability of choosing the purchase over the rental option
+                probabilityOfBuying = behaviour.getProbabilityOfBuying(optimalOptionForBuying,
+                        optimalOptionForRenting, this);
             }
         }
-        // TODO: Need to call here to an equivalent to the old countNonBTLBidsAboveExpAvSalePrice(), not implemented yet
+        return new HomeSearchRecord(this, geography.getMarketSnapshot().getVersion(), optimalOptionForBuying,
+                optimalOptionForRenting, probabilityOfBuying);
     }
 
     /********************************************************
@@ -519,6 +873,10 @@ public class Household implements IHouseOwner {
      ********************************************************/
     private boolean decideToSellHouse(House h) {
         if(h == home) {
+            // If event-driven, the decision was drawn in advance as a date to sell
+            if (Model.eventCalendar != null) {
+                return !behaviour.isPropertyInvestor() && homeSaleMonth == Model.getTime();
+            }
             return(behaviour.decideToSellHome());
         } else {
             return(behaviour.decideToSellInvestmentProperty(h, this));
@@ -532,15 +890,19 @@ public class Household implements IHouseOwner {
     @Override
     public void completeHouseLet(HouseOfferRecord sale, RentalAgreement rentalAgreement) {
         rentalContracts.put(sale.getHouse(), rentalAgreement);
+        updateMonthlyGrossRentalIncome();
     }
 
     /**
      * Find the monthly commuting cost for this household: monthly commuting time times value of time, plus monthly
-     * commuting fee
+     * commuting fee. Note that commuting times and fees are read from the rows shared by all households with the same
+     * job region at the geography, rather than copied for each household
      */
     public double getMonthlyCommutingCost(Region region) {
-        return 2.0 * (geography.getCommutingTimeBetween(jobRegion, region) * getTimeValue()
-                + geography.getCommutingFeeBetween(jobRegion, region))
+        Region jobRegion = getJobRegion();
+        int reachableIndex = geography.getReachableIndex(jobRegion, region);
+        return 2.0 * (geography.getCommutingTime(jobRegion, reachableIndex) * getTimeValue()
+                + geography.getCommutingFee(jobRegion, reachableIndex))
                 * config.constants.WORKING_DAYS_IN_MONTH;
     }
 
@@ -548,7 +910,7 @@ public class Household implements IHouseOwner {
      * Find the value (in GBP) of an hour of time for this household
      */
     private double getTimeValue(){
-        return monthlyGrossEmploymentIncome / (config.constants.WORKING_DAYS_IN_MONTH
+        return table.getMonthlyGrossEmploymentIncome(row) / (config.constants.WORKING_DAYS_IN_MONTH
                 * config.constants.WORKING_HOURS_IN_DAY);
     }
 
@@ -556,9 +918,16 @@ public class Household implements IHouseOwner {
      * Find the monthly commuting fee for this household
      */
     public double getMonthlyCommutingFee(Region region) {
-        return 2.0 * geography.getCommutingFeeBetween(jobRegion, region) * config.constants.WORKING_DAYS_IN_MONTH;
+        Region jobRegion = getJobRegion();
+        return geography.getMonthlyCommutingFee(jobRegion, geography.getReachableIndex(jobRegion, region));
     }
 
+    /**
+     * @return Monthly commuting fee from the household's current home, if it has a home (whether owned or rented), or
+     * zero otherwise
+     */
+    double getMonthlyCommutingFee() { return (home != null) ? getMonthlyCommutingFee(home.region) : 0.0; }
+
     /////////////////////////////////////////////////////////
     // Inheritance behaviour
     /////////////////////////////////////////////////////////
@@ -576,16 +945,13 @@ public class Household implements IHouseOwner {
             System.out.println("Strange: I'm transferring all my wealth to myself");
             System.exit(0);
         }
-        // Create an iterator over the house-paymentAgreement pairs at the deceased household's housePayments object
-        Iterator<Entry<House, PaymentAgreement>> paymentIt = housePayments.entrySet().iterator();
-        Entry<House, PaymentAgreement> entry;
         House h;
         PaymentAgreement payment;
-        // Iterate over these house-paymentAgreement pairs
-        while (paymentIt.hasNext()) {
-            entry = paymentIt.next();
-            h = entry.getKey();
-            payment = entry.getValue();
+        // Iterate over the house-paymentAgreement pairs at the deceased household's housePayments object, always taking
+        // the first one, as each of them is removed at the end of the iteration
+        while (!housePayments.isEmpty()) {
+            h = housePayments.getHouse(0);
+            payment = housePayments.getAgreement(0);
             // If the deceased household owns the house, then...
             if (h.owner == this) {
                 // ...first, withdraw the house from any market where it is currently being offered
@@ -608,18 +974,20 @@ public class Household implements IHouseOwner {
             // been renting it: end the letting agreement
             } else if (h == home) {
                 h.resident = null;
-                home = null;
-                h.owner.endOfLettingAgreement(h, housePayments.get(h));
+                h.tenancy = null;
+                setHome(null);
+                h.owner.endOfLettingAgreement(h, payment);
             }
             // If payment agreement is a mortgage, then try to pay off as much as possible from the deceased household's bank balance
             if (payment instanceof MortgageAgreement) {
-                bankBalance -= ((MortgageAgreement) payment).payoff();
+                table.setBankBalance(row, table.getBankBalance(row) - ((MortgageAgreement) payment).payoff());
             }
             // Remove the house-paymentAgreement entry from the deceased household's housePayments object
-            paymentIt.remove(); // TODO: Not sure this is necessary. Note, though, that this implies erasing all outstanding debt
+            housePayments.removeAt(0); // TODO: Not sure this is necessary. Note, though, that this implies erasing all outstanding debt
         }
         // Finally, transfer all remaining liquid wealth to the beneficiary household
-        beneficiary.bankBalance += Math.max(0.0, bankBalance);
+        beneficiary.table.setBankBalance(beneficiary.row,
+                beneficiary.getBankBalance() + Math.max(0.0, table.getBankBalance(row)));
     }
     
     /**
@@ -630,6 +998,7 @@ public class Household implements IHouseOwner {
      * @param h House to inherit
      */
     private void inheritHouse(House h, double oldPurchasePrice) {
+        invalidateMonthlyNetTotalIncome(); // Finance costs change with owned or occupied houses
         // Create a null (zero payments) mortgage
         MortgageAgreement nullMortgage = new MortgageAgreement(this,false);
         nullMortgage.nPayments = 0;
@@ -641,6 +1010,7 @@ public class Household implements IHouseOwner {
         // Become the owner of the inherited house and include it in my housePayments list (with a null mortgage)
         housePayments.put(h, nullMortgage);
         h.owner = this;
+        updateTenureFlags();
         // Check for residents in the inherited house
         if (h.resident != null) {
             System.out.println("Strange: inheriting a house with a resident");
@@ -653,15 +1023,13 @@ public class Household implements IHouseOwner {
                 endTenancy();                
             }
             // If new home is in a region different from the current home region...
-            if (h.region != homeRegion) {
+            if (h.region != getHomeRegion()) {
                 // ...then the household must first move to the new region (note that for death probability purposes,
                 // this change will only take effect in the next time step)...
-                homeRegion.households.remove(this);
-                homeRegion = h.region;
-                homeRegion.households.add(this);
+                moveToRegion(h.region);
             }
             // ...and then move in to the house
-            home = h;
+            setHome(h);
             h.resident = this;
         // If owning a home and having the BTL gene...
         } else if (behaviour.isPropertyInvestor()) {
@@ -680,9 +1048,57 @@ public class Household implements IHouseOwner {
 
     //----- Helpers -----//
 
-    public double getAge() { return age; }
+    /**
+     * Move the household from its current home region to a new one, updating the lists of households of both regions
+     */
+    private void moveToRegion(Region region) {
+        getHomeRegion().removeHousehold(this);
+        table.setHomeRegionID(row, region.getRegionID());
+        region.addHousehold(this);
+    }
+
+    /**
+     * Set the household's home, keeping the home house id at the household table in sync with it
+     */
+    private void setHome(House house) {
+        home = house;
+        table.setHomeHouseID(row, (house != null) ? house.id : -1);
+        table.setHomeQuality(row, (house != null) ? house.getQuality() : -1);
+        updateTenureFlags();
+        table.setMonthlyRent(row, isRenting() ? housePayments.get(house).monthlyPayment : 0.0);
+    }
+
+    /**
+     * Bring the tenure flags at the household table in line with the household's home and number of properties. This
+     * must be called whenever these change, including when the household becomes the owner of a house
+     */
+    void updateTenureFlags() {
+        table.setFlag(row, HouseholdTable.HOMEOWNER, isHomeowner());
+        table.setFlag(row, HouseholdTable.RENTER, isRenting());
+        table.setFlag(row, HouseholdTable.MULTIPLE_PROPERTIES, getNProperties() > 1);
+    }
+
+    /**
+     * Age of the household representative person, derived from the age at birth and the number of months since then
+     */
+    public double getAge() {
+        return table.getBirthAge(row)
+                + (double)(Model.getTime() - table.getBirthMonth(row))/config.constants.MONTHS_IN_YEAR;
+    }
+
+    /**
+     * Monthly age band of the household representative person, as used by Demographics, which increases by one every
+     * month since all bands are one month wide
+     */
+    int getAgeBand() { return table.getBirthAgeBand(row) + Model.getTime() - table.getBirthMonth(row); }
+
+    /**
+     * Cohort of households going through each monthly age band at the same time, identified by the time step at which
+     * the cohort was (or would have been) in the first band
+     */
+    int getAgeCohort() { return table.getBirthMonth(row) - table.getBirthAgeBand(row); }
 
-    void ageOneMonth() { age += 1.0/config.constants.MONTHS_IN_YEAR; }
+    double getIncomePercentile() { return table.getIncomePercentile(row); }
 
     public boolean isHomeowner() {
         if(home == null) return(false);
@@ -696,27 +1112,27 @@ public class Household implements IHouseOwner {
 
     public boolean isInSocialHousing() { return home == null; }
 
-    boolean isFirstTimeBuyer() { return isFirstTimeBuyer; }
+    boolean isFirstTimeBuyer() { return table.getFlag(row, HouseholdTable.FIRST_TIME_BUYER); }
 
-    public boolean isBankrupt() { return isBankrupt; }
+    public boolean isBankrupt() { return table.getFlag(row, HouseholdTable.BANKRUPT); }
 
-    public double getBankBalance() { return bankBalance; }
+    public double getBankBalance() { return table.getBankBalance(row); }
 
     public House getHome() { return home; }
 
-    public Map<House, PaymentAgreement> getHousePayments() { return housePayments; }
+    public PaymentAgreementMap<PaymentAgreement> getHousePayments() { return housePayments; }
 
-    public double getAnnualGrossEmploymentIncome() { return annualGrossEmploymentIncome; }
+    public double getAnnualGrossEmploymentIncome() { return table.getAnnualGrossEmploymentIncome(row); }
 
-    public double getMonthlyGrossEmploymentIncome() { return monthlyGrossEmploymentIncome; }
+    public double getMonthlyGrossEmploymentIncome() { return table.getMonthlyGrossEmploymentIncome(row); }
 
     /***
      * @return Number of properties this household currently has on the sale market
      */
     public int nPropertiesForSale() {
         int n=0;
-        for(House h : housePayments.keySet()) {
-            if(h.isOnMarket()) ++n;
+        for (int i = 0; i < housePayments.size(); i++) {
+            if(housePayments.getHouse(i).isOnMarket()) ++n;
         }
         return(n);
     }
@@ -761,7 +1177,7 @@ public class Household implements IHouseOwner {
         return(0.0);        
     }
 
-    public Region getJobRegion() { return jobRegion; }
+    public Region getJobRegion() { return geography.getRegions().get(table.getJobRegionID(row)); }
 
-    public Region getHomeRegion() { return homeRegion; }
+    public Region getHomeRegion() { return geography.getRegions().get(table.getHomeRegionID(row)); }
 }
@@ -0,0 +1,180 @@
+package housing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**************************************************************************************************
+ * Batch evaluation of the household step for all households in a region, as an alternative to
+ * stepping each household in turn. The step is split into phases, each run over all households
+ * before the next one starts: first, households receive their incomes, then those whose net total
+ * income needs to be recomputed get their income taxes and NICs computed at once by the batch
+ * government methods, and then households make their housing payments; then, the region's arrays
+ * of bank balances, incomes, commuting fees and desired bank balances are handed to the budget
+ * kernels, which add disposable incomes, subtract consumptions and deal with bankruptcies; then, the prices of all houses on the sale market are rethought and
+ * the decisions to sell all homes not on the market are made, by batch behaviour methods; and,
+ * finally, households manage their houses, reading these precomputed results, and make the rest
+ * of their housing decisions. Batch methods consume random draws in household order, such that
+ * results are reproducible, but not identical to those of the per-household step, which remains
+ * the reference implementation.
+ *
+ * @author agent
+ *
+ *************************************************************************************************/
+public class HouseholdBatch {
+
+    //------------------//
+    //----- Fields -----//
+    //------------------//
+
+    private Config                  config;
+    private HouseholdKernels        kernels;
+    // Budgets, one element per household
+    private double []               bankBalances = new double[0];
+    private double []               incomesAfterHousing = new double[0];
+    private double []               commutingFees = new double[0];
+    private double []               desiredBankBalances = new double[0];
+    private boolean []              bankrupt = new boolean[0];
+    // Taxes, one element per household whose net total income needs to be recomputed
+    private Household []            taxpayers = new Household[0];
+    private double []               incomeTaxes = new double[0]; // Taxable incomes, then replaced by taxes due
+    private double []               class1NICs = new double[0]; // Gross employment incomes, then replaced by NICs due
+    // Sale price updates, one element per house on the sale market
+    private HouseOfferRecord []     sales = new HouseOfferRecord[0];
+    private double []               salePrices = new double[0];
+    private int                     nSales;
+    private int                     saleCursor; // Next sale price update to be read
+    // Home sale decisions, one element per owned home not on the sale market
+    private House []                homes = new House[0];
+    private boolean []              isPropertyInvestor = new boolean[0];
+    private boolean []              sellHomeDecisions = new boolean[0];
+    private int                     nHomes;
+    private int                     homeCursor; // Next home sale decision to be read
+
+    //------------------------//
+    //----- Constructors -----//
+    //------------------------//
+
+    HouseholdBatch(Config config) {
+        this.config = config;
+        kernels = HouseholdKernels.create(config);
+    }
+
+    //-------------------//
+    //----- Methods -----//
+    //-------------------//
+
+    /**
+     * Step all the given households, in phases
+     */
+    void step(ArrayList<Household> households) {
+        int n = households.size();
+        ensureHouseholdCapacity(n);
+        // Receive incomes, gathering the incomes of those households whose net total income needs to be recomputed...
+        int nTaxpayers = 0;
+        for (Household h : households) {
+            h.receiveIncome();
+            if (h.isNetTotalIncomeStale()) {
+                taxpayers[nTaxpayers] = h;
+                incomeTaxes[nTaxpayers] = h.getAnnualTaxableIncome();
+                class1NICs[nTaxpayers] = h.getAnnualGrossEmploymentIncome();
+                nTaxpayers++;
+            }
+        }
+        // ...then compute their taxes at once and update their net total incomes...
+        Model.government.incomeTaxDue(incomeTaxes, incomeTaxes, nTaxpayers);
+        Model.government.class1NICsDue(class1NICs, class1NICs, nTaxpayers);
+        for (int i = 0; i < nTaxpayers; i++) taxpayers[i].setMonthlyNetTotalIncome(incomeTaxes[i], class1NICs[i]);
+        Arrays.fill(taxpayers, 0, nTaxpayers, null);
+        // ...then make housing payments, gathering the state needed for budget updates (note that a tenant making its
+        // last payment leaves the net total income of its landlord to be recomputed, one at a time, if still to pay)...
+        for (int i = 0; i < n; i++) {
+            Household h = households.get(i);
+            incomesAfterHousing[i] = h.getMonthlyIncomeAfterHousing();
+            commutingFees[i] = h.getMonthlyCommutingFee();
+            bankBalances[i] = h.getBankBalance();
+            desiredBankBalances[i] = h.behaviour.getDesiredBankBalance(h.getAnnualGrossTotalIncome());
+        }
+        // ...then update all budgets at once and write them back...
+        kernels.addDisposableIncomes(bankBalances, incomesAfterHousing, commutingFees, n);
+        kernels.consume(bankBalances, desiredBankBalances, config.CONSUMPTION_FRACTION, n, bankrupt);
+        for (int i = 0; i < n; i++) households.get(i).setBudgetOutcome(bankBalances[i], bankrupt[i]);
+        // ...then gather all houses needing random decisions and make these decisions at once...
+        nSales = 0;
+        nHomes = 0;
+        for (Household h : households) h.submitHouseDecisions(this);
+        HouseholdBehaviour.rethinkHouseSalePrices(salePrices, nSales, salePrices);
+        HouseholdBehaviour.decideToSellHomes(isPropertyInvestor, nHomes, sellHomeDecisions);
+        // ...and finally manage houses, reading these decisions, and make the rest of housing decisions
+        saleCursor = 0;
+        homeCursor = 0;
+        for (Household h : households) h.manageAndDecide(this);
+        if (saleCursor != nSales || homeCursor != nHomes) {
+            System.out.println("Strange: not all batch house decisions were used");
+        }
+        // Release references to records no longer needed
+        Arrays.fill(sales, 0, nSales, null);
+        Arrays.fill(homes, 0, nHomes, null);
+    }
+
+    /**
+     * Add a house on the sale market to the batch of sale prices to be rethought
+     */
+    void addSaleToRethink(HouseOfferRecord sale) {
+        if (nSales == sales.length) {
+            int capacity = Math.max(16, 2*nSales);
+            sales = Arrays.copyOf(sales, capacity);
+            salePrices = Arrays.copyOf(salePrices, capacity);
+        }
+        sales[nSales] = sale;
+        salePrices[nSales] = sale.getPrice();
+        nSales++;
+    }
+
+    /**
+     * Add a home not on the sale market to the batch of homes to be decided whether to sell
+     */
+    void addHomeToDecide(House home, boolean propertyInvestor) {
+        if (nHomes == homes.length) {
+            int capacity = Math.max(16, 2*nHomes);
+            homes = Arrays.copyOf(homes, capacity);
+            isPropertyInvestor = Arrays.copyOf(isPropertyInvestor, capacity);
+            sellHomeDecisions = Arrays.copyOf(sellHomeDecisions, capacity);
+        }
+        homes[nHomes] = home;
+        isPropertyInvestor[nHomes] = propertyInvestor;
+        nHomes++;
+    }
+
+    /**
+     * @return The rethought sale price for the given offer, which must be the next one in the batch, falling back on
+     * the per-household decision otherwise
+     */
+    double nextSalePrice(Household household, HouseOfferRecord sale) {
+        if (saleCursor < nSales && sales[saleCursor] == sale) return salePrices[saleCursor++];
+        System.out.println("Strange: sale offer not found in batch, rethinking its price individually");
+        return household.behaviour.rethinkHouseSalePrice(sale);
+    }
+
+    /**
+     * @return The decision whether to sell the given home, which must be the next one in the batch, falling back on
+     * the per-household decision otherwise
+     */
+    boolean nextSellHomeDecision(Household household, House home) {
+        if (homeCursor < nHomes && homes[homeCursor] == home) return sellHomeDecisions[homeCursor++];
+        System.out.println("Strange: home not found in batch, deciding whether to sell it individually");
+        return household.behaviour.decideToSellHome();
+    }
+
+    private void ensureHouseholdCapacity(int n) {
+        if (n <= bankBalances.length) return;
+        int capacity = Math.max(n, 2*bankBalances.length);
+        bankBalances = new double[capacity];
+        incomesAfterHousing = new double[capacity];
+        commutingFees = new double[capacity];
+        desiredBankBalances = new double[capacity];
+        bankrupt = new boolean[capacity];
+        taxpayers = new Household[capacity];
+        incomeTaxes = new double[capacity];
+        class1NICs = new double[capacity];
+    }
+}
@@ -2,6 +2,9 @@ package housing;
 
 import org.apache.commons.math3.distribution.LogNormalDistribution;
 import org.apache.commons.math3.random.MersenneTwister;
+import org.apache.commons.math3.random.RandomGenerator;
+
+import utilities.ApproximateMath;
 
 /**************************************************************************************************
  * Class to implement the behavioural decisions made by households
@@ -21,9 +24,16 @@ public class HouseholdBehaviour {
             config.DOWNPAYMENT_FTB_SCALE, config.DOWNPAYMENT_FTB_SHAPE); // Size distribution for downpayments of first-time-buyers
     private static LogNormalDistribution    downpaymentDistOO = new LogNormalDistribution(rand,
             config.DOWNPAYMENT_OO_SCALE, config.DOWNPAYMENT_OO_SHAPE); // Size distribution for downpayments of owner-occupiers
+    private static MortgageQuote            mortgageQuote = new MortgageQuote(); // Reusable holder for mortgage quotes
+    static final int                        NEVER = Integer.MAX_VALUE; // Months to sell a home that is never sold
+    private static final byte               NO_BTL_STRATEGY = 0;
+    private static final byte               FUNDAMENTALIST = 1;
+    private static final byte               TREND_FOLLOWER = 2;
     private boolean                         BTLInvestor;
-    private double                          BTLCapGainCoefficient; // Sensitivity of BTL investors to capital gain, 0.0 cares only about rental yield, 1.0 cares only about cap gain
+    private byte                            BTLStrategy; // Kept instead of the BTL cap gain coefficient, see getBTLCapGainCoefficient
     private double                          propensityToSave;
+    private double                          desiredBankBalanceIncome = Double.NaN; // Income of the last desired balance
+    private double                          desiredBankBalance; // Last desired bank balance found
     private Geography                       geography;
 
     //------------------------//
@@ -36,20 +46,36 @@ public class HouseholdBehaviour {
      * fundamentalist or a trend follower investor (provided it has received the BTL investor gene)
 	 *
 	 * @param incomePercentile Fixed income percentile for the household (assumed constant over a lifetime)
+     * @param random Random number generator to draw these variables from
      */
-	HouseholdBehaviour(Geography geography, double incomePercentile) {
+	HouseholdBehaviour(Geography geography, double incomePercentile, RandomGenerator random) {
 		this.geography = geography;
+		reset(incomePercentile, random);
+	}
+
+    /**
+     * Draw new behavioural variables, as for a new household, such that the storage of a deceased household's
+     * behaviour can be reused for a newborn household
+     *
+     * @param incomePercentile Fixed income percentile for the household (assumed constant over a lifetime)
+     * @param random Random number generator to draw these variables from
+     */
+    void reset(double incomePercentile, RandomGenerator random) {
+        desiredBankBalanceIncome = Double.NaN;
 	    // Compute propensity to save, so that it is constant for a given household
-        propensityToSave = rand.nextDouble();
+        propensityToSave = random.nextDouble();
+        if (config.COMPACT_HOUSEHOLD_STATE) { // As stored at the table
+            propensityToSave = HouseholdTable.toCompactProbability(propensityToSave);
+        }
         // Decide if household is a BTL investor and, if so, its tendency to seek capital gains or rental yields
-		BTLCapGainCoefficient = 0.0;
+		BTLStrategy = NO_BTL_STRATEGY;
         if(incomePercentile > config.MIN_INVESTOR_PERCENTILE &&
-                rand.nextDouble() < config.getPInvestor()/config.MIN_INVESTOR_PERCENTILE) {
+                random.nextDouble() < config.getPInvestor()/config.MIN_INVESTOR_PERCENTILE) {
             BTLInvestor = true;
-            if(rand.nextDouble() < config.P_FUNDAMENTALIST) {
-                BTLCapGainCoefficient = config.FUNDAMENTALIST_CAP_GAIN_COEFF;
+            if(random.nextDouble() < config.P_FUNDAMENTALIST) {
+                BTLStrategy = FUNDAMENTALIST;
             } else {
-                BTLCapGainCoefficient = config.TREND_CAP_GAIN_COEFF;
+                BTLStrategy = TREND_FOLLOWER;
             }
         } else {
             BTLInvestor = false;
@@ -70,8 +96,22 @@ public class HouseholdBehaviour {
      * @param annualGrossTotalIncome Household's annual gross total income
 	 */
     double getDesiredConsumption(double bankBalance, double annualGrossTotalIncome) {
-        return config.CONSUMPTION_FRACTION*Math.max(bankBalance
-                - data.Wealth.getDesiredBankBalance(annualGrossTotalIncome, propensityToSave), 0.0);
+        return config.CONSUMPTION_FRACTION*Math.max(bankBalance - getDesiredBankBalance(annualGrossTotalIncome), 0.0);
+    }
+
+    /**
+     * Minimum bank balance the household is willing to have at the end of the month, given its annual gross total
+     * income. Since this income rarely changes from month to month, the last result is kept and reused for as long as
+     * the income stays the same
+     *
+     * @param annualGrossTotalIncome Household's annual gross total income
+     */
+    double getDesiredBankBalance(double annualGrossTotalIncome) {
+        if (annualGrossTotalIncome != desiredBankBalanceIncome) {
+            desiredBankBalance = data.Wealth.getDesiredBankBalance(annualGrossTotalIncome, propensityToSave);
+            desiredBankBalanceIncome = annualGrossTotalIncome;
+        }
+        return desiredBankBalance;
     }
 
     //----- Owner-Occupier behaviour -----//
@@ -84,14 +124,10 @@ public class HouseholdBehaviour {
 	double getDesiredPurchasePrice(double monthlyGrossEmploymentIncome, Region region) {
 	    // TODO: This product is generally so small that it barely has any impact on the results, need to rethink if
         // TODO: it is necessary and if this small value makes any sense
-        double HPAFactor = config.BUY_WEIGHT_HPA*getLongTermHPAExpectation(region);
-        // TODO: The capping of this factor intends to avoid negative and too large desired prices, the 0.9 is a
-        // TODO: purely artificial fudge parameter. This formula should be reviewed and changed!
-        if (HPAFactor > 0.9) HPAFactor = 0.9;
         // TODO: Note that wealth is not used here, but only monthlyGrossEmploymentIncome
 		return config.BUY_SCALE*config.constants.MONTHS_IN_YEAR*monthlyGrossEmploymentIncome
-                *Math.exp(config.BUY_EPSILON*rand.nextGaussian())
-                /(1.0 - HPAFactor);
+                *exp(config.BUY_EPSILON*rand.nextGaussian())
+                /geography.getMarketSnapshot().getDesiredPurchasePriceDivisor(region);
 	}
 
 	/**
@@ -102,12 +138,10 @@ public class HouseholdBehaviour {
 	 * @param principal Amount of principal left on any mortgage on this house
 	 */
 	double getInitialSalePrice(Region region, int quality, double principal) {
-        double exponent = config.SALE_MARKUP
-                + Math.log(region.regionalHousingMarketStats.getExpAvSalePriceForQuality(quality) + 1.0)
-                - config.SALE_WEIGHT_MONTHS_ON_MARKET
-                * Math.log(region.regionalHousingMarketStats.getExpAvMonthsOnMarketForQuality(quality) + 1.0)
+        // Markup plus log average price minus months-on-market effect is pre-computed at the market snapshot
+        double exponent = geography.getMarketSnapshot().getInitialSalePriceExponent(region, quality)
                 + config.SALE_EPSILON*rand.nextGaussian();
-        return Math.max(Math.exp(exponent), principal);
+        return Math.max(exp(exponent), principal);
 	}
 
 	/**
@@ -121,6 +155,21 @@ public class HouseholdBehaviour {
         return !isPropertyInvestor() && (rand.nextDouble() < config.derivedParams.MONTHLY_P_SELL);
     }
 
+    /**
+     * Number of months from now until the household decides to sell its home, drawn from the geometric distribution
+     * of the number of failed monthly decisions to sell before the first successful one, so that deciding to sell at
+     * the given month is equivalent to decideToSellHome returning true for the first time at that month. Only used for
+     * non-investor households, as BTL investors never sell their homes
+     *
+     * @return Number of months until the home is sold, or NEVER if the monthly probability of selling is not positive
+     */
+    int drawMonthsToSellHome() {
+        if (config.derivedParams.MONTHLY_P_SELL <= 0.0) return NEVER;
+        double months = Math.floor(Math.log(1.0 - rand.nextDouble())
+                / Math.log(1.0 - config.derivedParams.MONTHLY_P_SELL));
+        return (int)Math.min(months, 1e9); // Capped to avoid overflows
+    }
+
 	/**
 	 * Decide amount to pay as initial downpayment
      *
@@ -135,14 +184,14 @@ public class HouseholdBehaviour {
 		if (me.isFirstTimeBuyer()) {
 		    // Since the function of the HPI is to move the down payments distribution upwards or downwards to
             // accommodate current price levels, and the distribution is itself aggregate, we use the aggregate HPI
-			downpayment = Model.housingMarketStats.getHPI()*downpaymentDistFTB.inverseCumulativeProbability(Math.max(0.0,
-                    (me.incomePercentile - config.DOWNPAYMENT_MIN_INCOME)/(1 - config.DOWNPAYMENT_MIN_INCOME)));
+			downpayment = geography.getMarketSnapshot().getHPI()*downpaymentDistFTB.inverseCumulativeProbability(Math.max(0.0,
+                    (me.getIncomePercentile() - config.DOWNPAYMENT_MIN_INCOME)/(1 - config.DOWNPAYMENT_MIN_INCOME)));
 		} else if (isPropertyInvestor()) {
 			downpayment = housePrice*(Math.max(0.0,
 					config.DOWNPAYMENT_BTL_MEAN + config.DOWNPAYMENT_BTL_EPSILON*rand.nextGaussian()));
 		} else {
-			downpayment = Model.housingMarketStats.getHPI()*downpaymentDistOO.inverseCumulativeProbability(Math.max(0.0,
-                    (me.incomePercentile - config.DOWNPAYMENT_MIN_INCOME)/(1 - config.DOWNPAYMENT_MIN_INCOME)));
+			downpayment = geography.getMarketSnapshot().getHPI()*downpaymentDistOO.inverseCumulativeProbability(Math.max(0.0,
+                    (me.getIncomePercentile() - config.DOWNPAYMENT_MIN_INCOME)/(1 - config.DOWNPAYMENT_MIN_INCOME)));
 		}
 		if (downpayment > me.getBankBalance()) downpayment = me.getBankBalance();
 		return downpayment;
@@ -157,11 +206,45 @@ public class HouseholdBehaviour {
 	double rethinkHouseSalePrice(HouseOfferRecord sale) {
 		if (rand.nextDouble() < config.P_SALE_PRICE_REDUCE) {
 			double logReduction = config.REDUCTION_MU + (rand.nextGaussian() * config.REDUCTION_SIGMA);
-			return sale.getPrice() * (1.0 - Math.exp(logReduction) / 100.0);
+			return sale.getPrice() * (1.0 - exp(logReduction) / 100.0);
 		}
 		return sale.getPrice();
 	}
 
+    //----- Batch behaviour -----//
+
+    // The following methods make the same decisions as their per-household counterparts above, which remain the
+    // reference implementation, for whole arrays of households at once, consuming random draws in array order (that
+    // is, each element consumes exactly the same draws, and in the same order, as the corresponding per-household call)
+
+    /**
+     * Batch version of decideToSellHome, for the first n elements of the given arrays. Note that, as with the reference
+     * method, BTL investors never sell their homes and, thus, do not consume any random draw
+     */
+    static void decideToSellHomes(boolean [] isPropertyInvestor, int n, boolean [] decisions) {
+        final double pSell = config.derivedParams.MONTHLY_P_SELL;
+        for (int i = 0; i < n; i++) decisions[i] = !isPropertyInvestor[i] && (rand.nextDouble() < pSell);
+    }
+
+    /**
+     * Batch version of rethinkHouseSalePrice, for the first n elements of the given arrays
+     *
+     * @param prices Current prices of the houses on the market
+     * @param newPrices Array where to write the new prices, which can be the same as the prices array
+     */
+    static void rethinkHouseSalePrices(double [] prices, int n, double [] newPrices) {
+        final double pReduce = config.P_SALE_PRICE_REDUCE;
+        final double mu = config.REDUCTION_MU;
+        final double sigma = config.REDUCTION_SIGMA;
+        for (int i = 0; i < n; i++) {
+            if (rand.nextDouble() < pReduce) {
+                newPrices[i] = prices[i] * (1.0 - exp(mu + (rand.nextGaussian() * sigma)) / 100.0);
+            } else {
+                newPrices[i] = prices[i];
+            }
+        }
+    }
+
     //----- Spatial decisions -----//
 
     /**
@@ -180,30 +263,40 @@ public class HouseholdBehaviour {
         double optimalExpAvSalePrice = 0.0; // Dummy value, never used
         double optimalDesiredPurchasePrice = 0.0; // Dummy value, never used
         Region optimalRegionForBuying = null;
-        // Find optimal region for buying. To this end, for each region...
-        for (Region region : geography.getRegions()) {
+        MarketSnapshot market = geography.getMarketSnapshot();
+        // Find household variables which do not depend on the region, including the maximum price given the LTV and
+        // LTI constraints, which are independent of commuting fees
+        double monthlyGrossEmploymentIncome = h.getMonthlyGrossEmploymentIncome();
+        double monthlyNetEmploymentIncome = h.getMonthlyNetEmploymentIncome();
+        double bankBalance = h.getBankBalance();
+        double maxPriceBeforeAffordability = Model.bank.getMaxHomeMortgageBeforeAffordability(bankBalance,
+                h.getAnnualGrossEmploymentIncome(), h.isFirstTimeBuyer());
+        // Find optimal region for buying. To this end, for each region reachable from the household's job region...
+        for (Region region : geography.getReachableRegions(h.getJobRegion())) {
             // ...find household's desired purchase price (with regional expected HPA)
             // TODO: Discuss with Doyne how to subtract from here total commuting costs (time + fees), that is, which
             // TODO: multiplier to use to transform annual commuting cost into full house price discount
-            desiredPurchasePrice = getDesiredPurchasePrice(h.getMonthlyGrossEmploymentIncome(), region);
+            desiredPurchasePrice = getDesiredPurchasePrice(monthlyGrossEmploymentIncome, region);
             // ...capped to the maximum mortgage available to the household, including commuting fees (effective
             // commuting cost) in the affordability check
-            desiredPurchasePrice = Math.min(desiredPurchasePrice, Model.bank.getMaxMortgage(h.getBankBalance(),
-                    h.getAnnualGrossEmploymentIncome(),
-                    (h.getMonthlyNetEmploymentIncome() - h.getMonthlyCommutingFee(region)),
-                    h.isFirstTimeBuyer(), true));
+            desiredPurchasePrice = Math.min(desiredPurchasePrice, Math.min(maxPriceBeforeAffordability,
+                    Model.bank.getAffordabilityMaxPrice(bankBalance,
+                            monthlyNetEmploymentIncome - h.getMonthlyCommutingFee(region))));
+            // ...skip this region if this price cannot reach the previous optimal quality (among studied regions)
+            if (optimalQuality >= 0
+                    && desiredPurchasePrice < market.getMinSalePriceForQuality(region, optimalQuality)) {
+                continue;
+            }
             // ...with this desired purchase price, find highest quality this household could afford to buy in this
             // region
-            int maxQualityForBuying = region.regionalHousingMarketStats.getMaxQualityForPrice(desiredPurchasePrice);
+            int maxQualityForBuying = market.getMaxSaleQualityForPrice(region, desiredPurchasePrice);
             // ...check if this quality is non-negative (i.e., household can at least afford the minimum quality) and it
             // is higher than (or equal and cheaper) than the previous optimal (among studied regions)
             if (maxQualityForBuying >= 0 && ((maxQualityForBuying > optimalQuality)
                     || ((maxQualityForBuying == optimalQuality)
-                    && (region.regionalHousingMarketStats.getExpAvSalePriceForQuality(maxQualityForBuying)
-                    < optimalExpAvSalePrice)))) {
+                    && (market.getExpAvSalePriceForQuality(region, maxQualityForBuying) < optimalExpAvSalePrice)))) {
                 optimalQuality = maxQualityForBuying;
-                optimalExpAvSalePrice
-                        = region.regionalHousingMarketStats.getExpAvSalePriceForQuality(maxQualityForBuying);
+                optimalExpAvSalePrice = market.getExpAvSalePriceForQuality(region, maxQualityForBuying);
                 optimalDesiredPurchasePrice = desiredPurchasePrice;
                 optimalRegionForBuying = region;
             }
@@ -233,22 +326,25 @@ public class HouseholdBehaviour {
         double optimalExpAvRentPrice = 0.0; // Dummy value, never used
         double optimalDesiredRentPrice = 0.0; // Dummy value, never used
         Region optimalRegionForRenting = null;
-        // Find optimal region for renting. To this end, for each region...
-        for (Region region : geography.getRegions()) {
+        MarketSnapshot market = geography.getMarketSnapshot();
+        double monthlyGrossEmploymentIncome = h.getMonthlyGrossEmploymentIncome();
+        // Find optimal region for renting. To this end, for each region reachable from the household's job region...
+        for (Region region : geography.getReachableRegions(h.getJobRegion())) {
             // ...find household's desired rental price (taking into account total commuting cost, time + fees)
-            desiredRentPrice = getDesiredRentPrice((h.getMonthlyGrossEmploymentIncome()
-                    - h.getMonthlyCommutingCost(region)));
+            desiredRentPrice = getDesiredRentPrice((monthlyGrossEmploymentIncome - h.getMonthlyCommutingCost(region)));
+            // ...skip this region if this price cannot reach the previous optimal quality (among studied regions)
+            if (optimalQuality >= 0 && desiredRentPrice < market.getMinRentPriceForQuality(region, optimalQuality)) {
+                continue;
+            }
             // ...with this desired rent price, find highest quality this household could afford to rent in this region
-            int maxQualityForRenting = region.regionalRentalMarketStats.getMaxQualityForPrice(desiredRentPrice);
+            int maxQualityForRenting = market.getMaxRentalQualityForPrice(region, desiredRentPrice);
             // ...check if this quality is non-negative (i.e., household can at least afford the minimum quality) and it
             // is higher than (or equal and cheaper) than the previous optimal (among studied regions)
             if (maxQualityForRenting >= 0 && ((maxQualityForRenting > optimalQuality)
                     || ((maxQualityForRenting == optimalQuality)
-                    && (region.regionalRentalMarketStats.getExpAvSalePriceForQuality(maxQualityForRenting)
-                    < optimalExpAvRentPrice)))) {
+                    && (market.getExpAvRentPriceForQuality(region, maxQualityForRenting) < optimalExpAvRentPrice)))) {
                 optimalQuality = maxQualityForRenting;
-                optimalExpAvRentPrice
-                        = region.regionalRentalMarketStats.getExpAvSalePriceForQuality(maxQualityForRenting);
+                optimalExpAvRentPrice = market.getExpAvRentPriceForQuality(region, maxQualityForRenting);
                 optimalDesiredRentPrice = desiredRentPrice;
                 optimalRegionForRenting = region;
             }
@@ -273,12 +369,13 @@ public class HouseholdBehaviour {
         // Declare and initialise variables for comparisons
         double cheapestTotalCost = Double.POSITIVE_INFINITY; // Dummy value, used only for 1st entry at if statement within for loop
         Region cheapestRegionForBuying = null;
-        // Find cheapest region for buying. To this end, for each region...
-        for (Region region : geography.getRegions()) {
+        MarketSnapshot market = geography.getMarketSnapshot();
+        // Find cheapest region for buying. To this end, for each region reachable from the household's job region...
+        for (Region region : geography.getReachableRegions(h.getJobRegion())) {
             // ...find total purchase cost including the household's commuting cost to this region
             // TODO: Once a decision is made with Doyne about which multiplier to use to transform annual commuting fees
             // TODO: into full house price discount, these fees should be subtracted here
-            double totalCost = region.regionalHousingMarketStats.getExpAvSalePriceForQuality(0);
+            double totalCost = market.getExpAvSalePriceForQuality(region, 0);
             // ...check if this cost is lower than or equal to the previous cheapest cost (among studied regions)
             if (totalCost <= cheapestTotalCost) {
                 cheapestTotalCost = totalCost;
@@ -313,11 +410,11 @@ public class HouseholdBehaviour {
         // Declare and initialise variables for comparisons
         double cheapestTotalCost = Double.POSITIVE_INFINITY; // Dummy value, used only for 1st entry at if statement within for loop
         Region cheapestRegionForRenting = null;
-        // Find cheapest region for renting. To this end, for each region...
-        for (Region region : geography.getRegions()) {
+        MarketSnapshot market = geography.getMarketSnapshot();
+        // Find cheapest region for renting. To this end, for each region reachable from the household's job region...
+        for (Region region : geography.getReachableRegions(h.getJobRegion())) {
             // ...find total rental cost including the household's commuting fees to this region
-            double totalCost = region.regionalRentalMarketStats.getExpAvSalePriceForQuality(0)
-                    + h.getMonthlyCommutingFee(region);
+            double totalCost = market.getExpAvRentPriceForQuality(region, 0) + h.getMonthlyCommutingFee(region);
             // ...check if this cost is lower than or equal to the previous cheapest cost (among studied regions)
             if (totalCost <= cheapestTotalCost) {
                 cheapestTotalCost = totalCost;
@@ -344,10 +441,11 @@ public class HouseholdBehaviour {
         // Declare and initialise variables for comparisons
         double optimalMonthlyRentalCost = Double.POSITIVE_INFINITY; // Dummy value, used only for 1st entry at if statement within for loop
         Region optimalRegionForRenting = null;
-        // For each region...
-        for (Region region : geography.getRegions()) {
+        MarketSnapshot market = geography.getMarketSnapshot();
+        // For each region reachable from the household's job region...
+        for (Region region : geography.getReachableRegions(h.getJobRegion())) {
             // ...find monthly rental cost of that quality band taking into account total commuting costs (time + fees)
-            double monthlyRentalCost = region.regionalRentalMarketStats.getExpAvSalePriceForQuality(quality)
+            double monthlyRentalCost = market.getExpAvRentPriceForQuality(region, quality)
                     + h.getMonthlyCommutingCost(region);
             if (monthlyRentalCost <= optimalMonthlyRentalCost) {
                 optimalMonthlyRentalCost = monthlyRentalCost;
@@ -366,19 +464,21 @@ public class HouseholdBehaviour {
      * Between a given optimal purchase choice (in a given region and for a given average price) and a given optimal
      * rental choice (in a given region and for a given average price), both of them including total commuting costs
      * (time + fees, i.e., the household is assume to be able to seek an economic compensation for the time spent
-     * commuting), decide whether to go for the purchase or the rental option. Note that, even though the household may
-     * decide to not rent a house of the same quality as they would buy, but rather of a different quality, the cash
-     * value of the difference in quality is assumed to be the same as the difference in rental price between the two
-     * qualities, thus being economically equivalent options.
+     * commuting), find the probability of going for the purchase rather than the rental option. Note that, even though
+     * the household may decide to not rent a house of the same quality as they would buy, but rather of a different
+     * quality, the cash value of the difference in quality is assumed to be the same as the difference in rental price
+     * between the two qualities, thus being economically equivalent options.
      *
-     *  @return True if household decides for the purchase option, false if household decides for the rental option
+     *  @return Probability that the household decides for the purchase option over the rental option
      */
-    boolean decideRentOrPurchase(RegionQualityPriceContainer optimalOptionForBuying,
-                                 RegionQualityPriceContainer optimalOptionForRenting, Household h) {
+    double getProbabilityOfBuying(RegionQualityPriceContainer optimalOptionForBuying,
+                                  RegionQualityPriceContainer optimalOptionForRenting, Household h) {
         // Simulate a mortgage request to assess annual mortgage cost for a house in the optimal region and quality band
         // for this household (i.e., using exponential average sale price for that region and quality band)
-        MortgageAgreement mortgageApproval = Model.bank.requestApproval(h, optimalOptionForBuying.getExpAvPrice(),
-                decideDownPayment(h, optimalOptionForBuying.getExpAvPrice()), true);
+        MortgageQuote mortgageApproval = Model.bank.quote(h, optimalOptionForBuying.getExpAvPrice(),
+                decideDownPayment(h, optimalOptionForBuying.getExpAvPrice()), true, mortgageQuote);
+        // If the bank would decline the mortgage, then the household cannot go for the purchase option
+        if (!mortgageApproval.approved) return 0.0;
         // Compute annual buying cost (annual mortgage cost plus annual total commuting cost, time + fees)
         double optimalAnnualBuyingCost = (mortgageApproval.monthlyPayment
                 + h.getMonthlyCommutingCost(optimalOptionForBuying.getRegion())) * config.constants.MONTHS_IN_YEAR
@@ -388,10 +488,8 @@ public class HouseholdBehaviour {
         double optimalAnnualRentalCost = config.constants.MONTHS_IN_YEAR * (optimalOptionForRenting.getExpAvPrice()
                 + h.getMonthlyCommutingCost(optimalOptionForRenting.getRegion()));
         // Compare costs to build a probability of buying based on a sigma function
-        double probabilityOfBuying = sigma(config.SENSITIVITY_RENT_OR_PURCHASE * (optimalAnnualRentalCost
+        return sigma(config.SENSITIVITY_RENT_OR_PURCHASE * (optimalAnnualRentalCost
                 * (1.0 + config.PSYCHOLOGICAL_COST_OF_RENTING) - optimalAnnualBuyingCost));
-        // Return a boolean which is true with that probability
-        return rand.nextDouble() < probabilityOfBuying;
     }
 
     ///////////////////////////////////////////////////////////
@@ -437,7 +535,7 @@ public class HouseholdBehaviour {
         // ...find the mortgage agreement for this property
         MortgageAgreement mortgage = me.mortgageFor(h);
         // ...find its current (fair market value) sale price
-        double currentMarketPrice = h.region.regionalHousingMarketStats.getExpAvSalePriceForQuality(h.getQuality());
+        double currentMarketPrice = geography.getMarketSnapshot().getExpAvSalePriceForQuality(h.region, h.getQuality());
         // ...find equity, or assets minus liabilities
         double equity = Math.max(0.01, currentMarketPrice - mortgage.principal); // The 0.01 prevents possible divisions by zero later on
         // ...find the leverage on that mortgage (Assets divided by equity, or return on equity)
@@ -448,11 +546,11 @@ public class HouseholdBehaviour {
         // ...find the mortgage rate (pounds paid a year per pound of equity)
 		double mortgageRate = mortgage.nextPayment()*config.constants.MONTHS_IN_YEAR/equity;
         // ...finally, find expected equity yield, or yield on equity
-        double expectedEquityYield = leverage*((1.0 - BTLCapGainCoefficient)*currentRentalYield
-                    + BTLCapGainCoefficient*getLongTermHPAExpectation(h.region))
+        double expectedEquityYield = leverage*((1.0 - getBTLCapGainCoefficient())*currentRentalYield
+                    + getBTLCapGainCoefficient()*getLongTermHPAExpectation(h.region))
                     - mortgageRate;
 		// Compute a probability to keep the property as a function of the effective yield
-		double pKeep = Math.pow(sigma(config.BTL_CHOICE_INTENSITY*expectedEquityYield),
+		double pKeep = pow(sigma(config.BTL_CHOICE_INTENSITY*expectedEquityYield),
                 1.0/config.constants.MONTHS_IN_YEAR);
 		// Return true or false as a random draw from the computed probability
 		return rand.nextDouble() < (1.0 - pKeep);
@@ -476,8 +574,8 @@ public class HouseholdBehaviour {
      */
     Region decideWhereToBuyInvestmentProperty(Household me) {
         // Fast decision: never buy (keep on saving) if bank balance is below the household's desired bank balance
-        if (me.getBankBalance() < data.Wealth.getDesiredBankBalance(me.getAnnualGrossTotalIncome(),
-                me.behaviour.getPropensityToSave())*config.BTL_CHOICE_MIN_BANK_BALANCE) { return null; }
+        if (me.getBankBalance() < getDesiredBankBalance(me.getAnnualGrossTotalIncome())
+                *config.BTL_CHOICE_MIN_BANK_BALANCE) { return null; }
 
         // Compute and store the probability to invest en each region, as well as the sum of these probabilities
         double[] probToBuyPerRegion = findProbabilityToInvestPerRegion(me);
@@ -534,32 +632,35 @@ public class HouseholdBehaviour {
         double maxPrice = Model.bank.getMaxMortgage(me.getBankBalance(), me.getAnnualGrossEmploymentIncome(),
                 me.getMonthlyNetEmploymentIncome(), me.isFirstTimeBuyer(), false);
         // ...find mortgage with maximum leverage by requesting maximum mortgage with minimum downpayment
-        MortgageAgreement mortgage = Model.bank.requestApproval(me, maxPrice, 0.0, false);
+        MortgageQuote mortgage = Model.bank.quote(me, maxPrice, 0.0, false, mortgageQuote);
+        // ...where, if the bank would decline even this mortgage, then the household cannot invest in any region
+        double[] probToBuyPerRegion = new double[geography.getRegions().size()];
+        if (!mortgage.approved) return probToBuyPerRegion;
         // ...find equity, or assets minus liabilities (which, initially, is simply the downpayment)
         double equity = Math.max(0.01, mortgage.downPayment); // The 0.01 prevents possible divisions by zero later on
         // ...find the leverage on that mortgage (Assets divided by equity, or return on equity)
         double leverage = mortgage.purchasePrice/equity;
         // ...find the mortgage rate (pounds paid a year per pound of equity)
-        double mortgageRate = mortgage.nextPayment()*config.constants.MONTHS_IN_YEAR/equity;
+        double mortgageRate = mortgage.monthlyPayment*config.constants.MONTHS_IN_YEAR/equity;
 
         // Compute and store the probability to invest en each region, as well as the sum of these probabilities
-        double[] probToBuyPerRegion = new double[geography.getRegions().size()];
+        MarketSnapshot market = geography.getMarketSnapshot();
         // To this end, iterate through the regions...
         int i = 0;
         for (Region region : geography.getRegions()) {
             // ...finding the expected rental yield as an (exponential) average over all house qualities
-            double rentalYield = region.regionalRentalMarketStats.getExpAvFlowYield();
+            double rentalYield = market.getExpAvFlowYield(region);
             // ...computing the expected equity yield, or yield on equity
-            double expectedEquityYield = leverage*((1.0 - BTLCapGainCoefficient)*rentalYield
-                    + BTLCapGainCoefficient*getLongTermHPAExpectation(region))
+            double expectedEquityYield = leverage*((1.0 - getBTLCapGainCoefficient())*rentalYield
+                    + getBTLCapGainCoefficient()*getLongTermHPAExpectation(region))
                     - mortgageRate;
             // ...and, finally, computing the probability to buy a new investment property in this region as a function
             // of its expected equity yield
-            probToBuyPerRegion[i] = 1.0 - Math.pow((1.0 - sigma(config.BTL_CHOICE_INTENSITY*expectedEquityYield)),
+            probToBuyPerRegion[i] = 1.0 - pow((1.0 - sigma(config.BTL_CHOICE_INTENSITY*expectedEquityYield)),
                     1.0/config.constants.MONTHS_IN_YEAR);
             // ...with the caveat that, households assign zero probability to buy to regions where they cannot afford
             // the average price of even the lowest quality band
-            if (maxPrice < region.regionalHousingMarketStats.getExpAvSalePriceForQuality(0)) {
+            if (maxPrice < market.getExpAvSalePriceForQuality(region, 0)) {
                 probToBuyPerRegion[i] = 0.0;
             }
             i++;
@@ -574,7 +675,7 @@ public class HouseholdBehaviour {
         // TODO: check for removal!
         return(Math.min(Model.bank.getMaxMortgage(me.getBankBalance(), me.getAnnualGrossEmploymentIncome(),
                 me.getMonthlyNetEmploymentIncome(), me.isFirstTimeBuyer(), false),
-                1.1*region.regionalHousingMarketStats.getExpAvSalePriceForQuality(config.N_QUALITY-1)));
+                1.1*geography.getMarketSnapshot().getExpAvSalePriceForQuality(region, config.N_QUALITY-1)));
     }
 
 	/**
@@ -586,16 +687,13 @@ public class HouseholdBehaviour {
 	 */
 	double buyToLetRent(int quality, Region region) {
 		// TODO: What? Where does this equation come from?
-		final double beta = config.RENT_MARKUP/Math.log(config.RENT_EQ_MONTHS_ON_MARKET); // Weight of months-on-market effect
-		double exponent = config.RENT_MARKUP
-                + Math.log(region.regionalRentalMarketStats.getExpAvSalePriceForQuality(quality) + 1.0)
-                - beta*Math.log(region.regionalRentalMarketStats.getExpAvMonthsOnMarketForQuality(quality) + 1.0)
-                + config.RENT_EPSILON * rand.nextGaussian();
-		double result = Math.exp(exponent);
+        // Markup plus log average rent minus months-on-market effect is pre-computed at the market snapshot
+        MarketSnapshot market = geography.getMarketSnapshot();
+		double exponent = market.getBuyToLetRentExponent(region, quality) + config.RENT_EPSILON * rand.nextGaussian();
+		double result = exp(exponent);
         // TODO: The following contains clamps rent prices to be at least 12*RENT_MAX_AMORTIZATION_PERIOD times below
         // TODO: sale prices, thus setting also a minimum rental yield
-        double minAcceptable = region.regionalHousingMarketStats.getExpAvSalePriceForQuality(quality)
-                /(config.RENT_MAX_AMORTIZATION_PERIOD*config.constants.MONTHS_IN_YEAR);
+        double minAcceptable = market.getMinAcceptableRent(region, quality);
         if (result < minAcceptable) result = minAcceptable;
 		return result;
 	}
@@ -613,7 +711,22 @@ public class HouseholdBehaviour {
      *
      * @param x Parameter of the sigma or logistic function
      */
-    private double sigma(double x) { return 1.0/(1.0 + Math.exp(-1.0*x)); }
+    private double sigma(double x) {
+        if (config.FAST_MATH) return ApproximateMath.sigma(x);
+        return 1.0/(1.0 + Math.exp(-1.0*x));
+    }
+
+    /**
+     * Exponential function, approximated if fast math is enabled
+     */
+    private static double exp(double x) { return config.FAST_MATH ? ApproximateMath.exp(x) : Math.exp(x); }
+
+    /**
+     * Power function, approximated if fast math is enabled
+     */
+    private static double pow(double x, double y) {
+        return config.FAST_MATH ? ApproximateMath.pow(x, y) : Math.pow(x, y);
+    }
 
 	/**
      * @return expectation value of HPI in one year's time divided by today's HPI
@@ -621,10 +734,23 @@ public class HouseholdBehaviour {
 	private double getLongTermHPAExpectation(Region region) {
 		// Dampening or multiplier factor, depending on its value being <1 or >1, for the current trend of HPA when
 		// computing expectations as in HPI(t+DT) = HPI(t) + FACTOR*DT*dHPI/dt (double)
-		return(region.regionalHousingMarketStats.getLongTermHPA()*config.HPA_EXPECTATION_FACTOR);
+		return geography.getMarketSnapshot().getLongTermHPAExpectation(region);
     }
 
-    public double getBTLCapGainCoefficient() { return BTLCapGainCoefficient; }
+    /**
+     * @return Sensitivity of BTL investors to capital gain, 0.0 cares only about rental yield, 1.0 cares only about cap
+     * gain, found from the strategy of the investor, such that no double needs to be stored for each household
+     */
+    public double getBTLCapGainCoefficient() {
+        switch (BTLStrategy) {
+            case FUNDAMENTALIST:
+                return config.FUNDAMENTALIST_CAP_GAIN_COEFF;
+            case TREND_FOLLOWER:
+                return config.TREND_CAP_GAIN_COEFF;
+            default:
+                return 0.0;
+        }
+    }
 
     public boolean isPropertyInvestor() { return BTLInvestor; }
 
@@ -0,0 +1,92 @@
+package housing;
+
+/**************************************************************************************************
+ * Array kernels for the arithmetic passes over all households of a region, that is, the monthly
+ * budget update (adding disposable income, subtracting non-essential consumption and dealing with
+ * bankruptcies) and the sums behind regional household statistics, once the relevant household
+ * variables have been gathered into primitive arrays. This class provides the scalar kernels,
+ * which follow exactly the same order of operations as the per-household code. A subclass using
+ * the Java Vector API, VectorHouseholdKernels, is compiled only by the jdk17-vector build profile,
+ * and it is loaded by reflection if selected at the configuration, falling back on the scalar
+ * kernels if not available. Note that vector kernels give bit-identical budgets, as all their
+ * operations are lane-wise, but sums which differ in their last bits, as they add up values in a
+ * different order.
+ *
+ * @author agent
+ *
+ *************************************************************************************************/
+public class HouseholdKernels {
+
+    //-------------------//
+    //----- Methods -----//
+    //-------------------//
+
+    /**
+     * Create the household kernels selected at the configuration
+     */
+    public static HouseholdKernels create(Config config) {
+        switch (config.HOUSEHOLD_KERNELS) {
+            case "SCALAR":
+                return new HouseholdKernels();
+            case "VECTOR":
+                try {
+                    return (HouseholdKernels) Class.forName("housing.VectorHouseholdKernels").getDeclaredConstructor()
+                            .newInstance();
+                } catch (ReflectiveOperationException | LinkageError e) {
+                    System.out.println("Vector household kernels not available (" + e + "), using SCALAR");
+                    return new HouseholdKernels();
+                }
+            default:
+                System.out.println("Strange: unknown household kernels " + config.HOUSEHOLD_KERNELS + ", using SCALAR");
+                return new HouseholdKernels();
+        }
+    }
+
+    //----- Budget kernels -----//
+
+    /**
+     * Add monthly disposable income to the bank balance of each household, where disposable income is net total income
+     * minus essential consumption and housing payments, as given, minus the commuting fee
+     */
+    public void addDisposableIncomes(double [] bankBalances, double [] incomesAfterHousing, double [] commutingFees,
+                                     int n) {
+        for (int i = 0; i < n; i++) bankBalances[i] = bankBalances[i] + (incomesAfterHousing[i] - commutingFees[i]);
+    }
+
+    /**
+     * Subtract from the bank balance of each household its non-essential consumption, a fraction of the excess of its
+     * bank balance over its desired bank balance, and then deal with bankruptcies, resetting negative balances to one
+     *
+     * @param bankrupt Array where to write whether each household has gone bankrupt
+     */
+    public void consume(double [] bankBalances, double [] desiredBankBalances, double consumptionFraction, int n,
+                        boolean [] bankrupt) {
+        for (int i = 0; i < n; i++) {
+            double bankBalance = bankBalances[i]
+                    - consumptionFraction*Math.max(bankBalances[i] - desiredBankBalances[i], 0.0);
+            bankrupt[i] = bankBalance < 0.0;
+            bankBalances[i] = bankrupt[i] ? 1.0 : bankBalance;
+        }
+    }
+
+    //----- Statistics kernels -----//
+
+    /**
+     * @return The sum of the first n values
+     */
+    public double sum(double [] values, int n) {
+        double sum = 0.0;
+        for (int i = 0; i < n; i++) sum += values[i];
+        return sum;
+    }
+
+    /**
+     * Add each of the first n values to the sum of its group
+     *
+     * @param groups Group of each value, between 0 and sums.length - 1
+     * @param sums Array of sums per group, which is not reset before adding
+     */
+    public void sumByGroup(int [] groups, double [] values, int n, double [] sums) {
+        for (int i = 0; i < n; i++) sums[groups[i]] += values[i];
+    }
+}
@@ -0,0 +1,454 @@
+package housing;
+
+import java.util.Arrays;
+
+/**************************************************************************************************
+ * Store for the primitive state of all living households, with one row per household and one
+ * column per variable (age at birth, bank balance, incomes, rent paid, income percentile,
+ * propensity to save, job and home region ids, home house id and quality, and birth month and
+ * age band). Note that ages are not stored but derived from the time elapsed since birth, such that no pass over all rows is needed
+ * to age households every month. Flags (first-time buyer, bankrupt, buy-to-let gene and tenure)
+ * are not stored as a column either, but as one bitset over rows per flag, kept next to one bitset
+ * per region with the rows of households living there and one with those working there. Thus,
+ * households of a region with a given combination of flags can be counted and visited with a few
+ * word-level operations (see RegionalHouseholdStats). Household objects act as thin handles onto their
+ * row of this table, keeping only object references such as their behaviour, home and payment
+ * agreements, and access their state through the accessor methods of this class. Two storage
+ * backends are available, selected by the HOUSEHOLD_STORE parameter:
+ * - HEAP: one contiguous on-heap primitive array per variable (see HeapHouseholdTable)
+ * - DIRECT or MAPPED: fixed-width records in off-heap direct buffers or in memory-mapped file
+ *   segments which the operating system can page to disk (see OffHeapHouseholdTable)
+ * Note that moving these rows off the heap only saves part of the heap used per household, as
+ * handles, behaviours, houses and payment agreements remain heap objects.
+ *
+ * Rows are kept packed: when a household dies, the last row is moved into its place and the handle
+ * of the household owning that last row is updated accordingly. Thus, row order is not the order
+ * in which households were born, and any pass whose results depend on order (such as floating
+ * point sums or random draws) must keep iterating over households in their usual order.
+ *
+ * If COMPACT_HOUSEHOLD_STATE is true, those variables fixed for the whole lifetime of a household
+ * (age at birth, income percentile and propensity to save) are stored as floats, while all
+ * computations keep using doubles. Monetary variables, which accumulate month after month, are
+ * always stored in full precision.
+ *
+ * @author agent
+ *
+ *************************************************************************************************/
+public abstract class HouseholdTable {
+
+    //------------------//
+    //----- Fields -----//
+    //------------------//
+
+    // Double columns, those fixed for the whole lifetime of the household at the end, from FIRST_COMPACT_COLUMN on
+    static final int            BANK_BALANCE = 0;
+    static final int            ANNUAL_GROSS_EMPLOYMENT_INCOME = 1;
+    static final int            MONTHLY_GROSS_EMPLOYMENT_INCOME = 2;
+    static final int            MONTHLY_NET_EMPLOYMENT_INCOME = 3; // Income ledger, see Household
+    static final int            MONTHLY_GROSS_RENTAL_INCOME = 4; // Income ledger, see Household
+    static final int            MONTHLY_NET_TOTAL_INCOME = 5; // Income ledger, see Household
+    static final int            MONTHLY_RENT = 6; // Rent paid on the home, zero unless renting
+    static final int            BIRTH_AGE = 7; // Age of the household representative person at birth
+    static final int            INCOME_PERCENTILE = 8;
+    static final int            PROPENSITY_TO_SAVE = 9;
+    static final int            N_DOUBLE_COLUMNS = 10;
+    static final int            FIRST_COMPACT_COLUMN = 7; // Columns from this one on are stored as floats if compact
+    // Int columns
+    static final int            JOB_REGION_ID = 0;
+    static final int            HOME_REGION_ID = 1;
+    static final int            HOME_HOUSE_ID = 2; // Id of the house the household lives in, -1 if in social housing
+    static final int            BIRTH_MONTH = 3; // Time step at which the household was born
+    static final int            BIRTH_AGE_BAND = 4; // Monthly age band at birth, see Demographics
+    static final int            HOME_QUALITY = 5; // Quality of the house the household lives in, -1 if none
+    static final int            N_INT_COLUMNS = 6;
+
+    // Flags, each of them stored as a bitset over rows
+    public static final int     FIRST_TIME_BUYER = 1;
+    public static final int     BANKRUPT = 2;
+    public static final int     BTL_INVESTOR = 4;
+    public static final int     HOMEOWNER = 8; // Living in a house it owns
+    public static final int     RENTER = 16; // Living in a house owned by someone else
+    public static final int     MULTIPLE_PROPERTIES = 32; // Homeowner with more than one property, see getNProperties
+    static final int            N_FLAGS = 6;
+
+    private int                 size;
+    private Household []        households; // Handle owning each row
+    private long [][]           flagBits = new long[N_FLAGS][]; // One bit per row for each flag
+    private long [][]           homeRegionBits = new long[0][]; // One bit per row for each home region id
+    private long [][]           jobRegionBits = new long[0][]; // One bit per row for each job region id
+
+    //------------------------//
+    //----- Constructors -----//
+    //------------------------//
+
+    /**
+     * @param initialCapacity Number of handles to allocate initially, the table growing as needed beyond this number
+     */
+    HouseholdTable(int initialCapacity) {
+        households = new Household[Math.max(initialCapacity, 1)];
+        for (int flag = 0; flag < N_FLAGS; flag++) flagBits[flag] = new long[words(households.length)];
+    }
+
+    /**
+     * Create a household table with the storage backend and precision selected at the configuration
+     */
+    static HouseholdTable create(Config config) {
+        int nDoubleColumns = config.COMPACT_HOUSEHOLD_STATE ? FIRST_COMPACT_COLUMN : N_DOUBLE_COLUMNS;
+        switch (config.HOUSEHOLD_STORE) {
+            case "HEAP":
+                return new HeapHouseholdTable(config.TARGET_POPULATION, nDoubleColumns);
+            case "DIRECT":
+                return new OffHeapHouseholdTable(config.TARGET_POPULATION, nDoubleColumns, null);
+            case "MAPPED":
+                return new OffHeapHouseholdTable(config.TARGET_POPULATION, nDoubleColumns,
+                        config.HOUSEHOLD_STORE_FILE);
+            default:
+                System.out.println("Strange: unknown household store " + config.HOUSEHOLD_STORE + ", using HEAP");
+                return new HeapHouseholdTable(config.TARGET_POPULATION, nDoubleColumns);
+        }
+    }
+
+    //-------------------//
+    //----- Methods -----//
+    //-------------------//
+
+    //----- Storage backend methods -----//
+
+    /**
+     * Note that backends keep in full precision only the double columns below the number given at construction,
+     * storing the rest as floats, such that values read from these columns are those written rounded to float
+     */
+    abstract double getDouble(int row, int column);
+
+    abstract void setDouble(int row, int column, double value);
+
+    abstract int getInt(int row, int column);
+
+    abstract void setInt(int row, int column, int value);
+
+    /**
+     * Make sure the backend has room for, at least, the given number of rows, keeping the contents of existing rows
+     */
+    abstract void ensureCapacity(int capacity);
+
+    /**
+     * Copy all variables from one row to another
+     */
+    abstract void copyRow(int from, int to);
+
+    /**
+     * Release any resources held by the backend outside the heap, after which the table must not be used any more
+     */
+    void close() {}
+
+    //----- Row management methods -----//
+
+    /**
+     * Remove all rows, detaching any remaining households from the table
+     */
+    void clear() {
+        for (int row = 0; row < size; row++) {
+            households[row].row = -1;
+            households[row] = null;
+        }
+        size = 0;
+        for (long [] bits : flagBits) Arrays.fill(bits, 0L);
+        for (long [] bits : homeRegionBits) Arrays.fill(bits, 0L);
+        for (long [] bits : jobRegionBits) Arrays.fill(bits, 0L);
+    }
+
+    /**
+     * Add a new row, with all variables set to zero and no home, for the given household
+     *
+     * @return Index of the new row
+     */
+    int add(Household household) {
+        if (size == households.length) {
+            Household [] newHouseholds = new Household[2*size];
+            System.arraycopy(households, 0, newHouseholds, 0, size);
+            households = newHouseholds;
+            int nWords = words(households.length);
+            for (int flag = 0; flag < N_FLAGS; flag++) flagBits[flag] = Arrays.copyOf(flagBits[flag], nWords);
+            for (int id = 0; id < homeRegionBits.length; id++) {
+                homeRegionBits[id] = Arrays.copyOf(homeRegionBits[id], nWords);
+                jobRegionBits[id] = Arrays.copyOf(jobRegionBits[id], nWords);
+            }
+        }
+        ensureCapacity(size + 1);
+        int row = size++;
+        households[row] = household;
+        for (int column = 0; column < N_DOUBLE_COLUMNS; column++) setDouble(row, column, 0.0);
+        for (int column = 0; column < N_INT_COLUMNS; column++) setInt(row, column, 0);
+        for (long [] bits : flagBits) clearBit(bits, row);
+        setInt(row, JOB_REGION_ID, -1);
+        setInt(row, HOME_REGION_ID, -1);
+        setInt(row, HOME_HOUSE_ID, -1);
+        setInt(row, HOME_QUALITY, -1);
+        return row;
+    }
+
+    /**
+     * Remove the row of the given household, moving the last row into its place, and detach the household from the
+     * table, such that any further access to its primitive state fails
+     */
+    void remove(Household household) {
+        int row = household.row;
+        if (row < 0 || households[row] != household) {
+            System.out.println("Strange: removing a household which is not in the household table");
+            return;
+        }
+        int last = --size;
+        setHomeRegionID(row, -1);
+        setJobRegionID(row, -1);
+        if (row != last) {
+            households[row] = households[last];
+            households[row].row = row;
+            int homeRegionID = getInt(last, HOME_REGION_ID);
+            int jobRegionID = getInt(last, JOB_REGION_ID);
+            setHomeRegionID(last, -1);
+            setJobRegionID(last, -1);
+            copyRow(last, row);
+            setHomeRegionID(row, homeRegionID);
+            setJobRegionID(row, jobRegionID);
+            for (long [] bits : flagBits) {
+                if ((bits[last >>> 6] & (1L << last)) != 0) setBit(bits, row); else clearBit(bits, row);
+            }
+        }
+        for (long [] bits : flagBits) clearBit(bits, last);
+        households[last] = null;
+        household.row = -1;
+    }
+
+    //----- Bitset methods -----//
+
+    /**
+     * @return Number of households living at the given region with all the flags in flagsSet and none of the flags in
+     * flagsClear, each of these two arguments being a combination of flags
+     */
+    public int count(int homeRegionID, int flagsSet, int flagsClear) {
+        if (homeRegionID >= homeRegionBits.length) return 0;
+        long [] region = homeRegionBits[homeRegionID];
+        int n = 0;
+        for (int w = 0; w < words(size); w++) n += Long.bitCount(maskWord(region[w], w, flagsSet, flagsClear));
+        return n;
+    }
+
+    /**
+     * @return Number of households living at the given region but working at a different one
+     */
+    public int countCommuters(int homeRegionID) {
+        if (homeRegionID >= homeRegionBits.length) return 0;
+        long [] home = homeRegionBits[homeRegionID];
+        long [] job = jobRegionBits[homeRegionID];
+        int n = 0;
+        for (int w = 0; w < words(size); w++) n += Long.bitCount(home[w] & ~job[w]);
+        return n;
+    }
+
+    /**
+     * @return Sum of the monthly gross total incomes (employment plus rental incomes) of all households living at the
+     * given region with all the flags in flagsSet and none of the flags in flagsClear, added up in increasing row order
+     */
+    public double sumMonthlyGrossTotalIncomes(int homeRegionID, int flagsSet, int flagsClear) {
+        if (homeRegionID >= homeRegionBits.length) return 0.0;
+        long [] region = homeRegionBits[homeRegionID];
+        double sum = 0.0;
+        for (int w = 0; w < words(size); w++) {
+            long word = maskWord(region[w], w, flagsSet, flagsClear);
+            while (word != 0) {
+                int row = (w << 6) + Long.numberOfTrailingZeros(word);
+                sum += getDouble(row, MONTHLY_GROSS_EMPLOYMENT_INCOME) + getDouble(row, MONTHLY_GROSS_RENTAL_INCOME);
+                word &= word - 1;
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Count the households living at the given region and working at each region, and sum their monthly gross
+     * employment incomes, added up in increasing row order, such that per-household quantities linear in income and
+     * only depending on these two regions, such as commuting costs, can be summed over groups (see Geography)
+     *
+     * @param counts Array, indexed by job region id, where to write the number of households working at each region
+     * @param incomes Array, indexed by job region id, where to write the sum of their monthly gross employment incomes
+     */
+    public void sumByJobRegion(int homeRegionID, int [] counts, double [] incomes) {
+        Arrays.fill(counts, 0);
+        Arrays.fill(incomes, 0.0);
+        if (homeRegionID >= homeRegionBits.length) return;
+        long [] home = homeRegionBits[homeRegionID];
+        for (int jobRegionID = 0; jobRegionID < jobRegionBits.length; jobRegionID++) {
+            long [] job = jobRegionBits[jobRegionID];
+            for (int w = 0; w < words(size); w++) {
+                long word = home[w] & job[w];
+                counts[jobRegionID] += Long.bitCount(word);
+                while (word != 0) {
+                    incomes[jobRegionID] += getDouble((w << 6) + Long.numberOfTrailingZeros(word),
+                            MONTHLY_GROSS_EMPLOYMENT_INCOME);
+                    word &= word - 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Sum the monthly rents paid by all households living at the given region with all the flags in flagsSet and none
+     * of the flags in flagsClear, grouped by the quality of their homes and added up in increasing row order
+     *
+     * @param sums Array, indexed by quality, where to write the sums of rents, households without a home not counted
+     */
+    public void sumMonthlyRentsByQuality(int homeRegionID, int flagsSet, int flagsClear, double [] sums) {
+        Arrays.fill(sums, 0.0);
+        if (homeRegionID >= homeRegionBits.length) return;
+        long [] region = homeRegionBits[homeRegionID];
+        for (int w = 0; w < words(size); w++) {
+            long word = maskWord(region[w], w, flagsSet, flagsClear);
+            while (word != 0) {
+                int row = (w << 6) + Long.numberOfTrailingZeros(word);
+                int quality = getInt(row, HOME_QUALITY);
+                if (quality >= 0) sums[quality] += getDouble(row, MONTHLY_RENT);
+                word &= word - 1;
+            }
+        }
+    }
+
+    /**
+     * Mask a word of a region bitset with the corresponding words of the bitsets of the given flags
+     */
+    private long maskWord(long word, int w, int flagsSet, int flagsClear) {
+        for (int flags = flagsSet; flags != 0; flags &= flags - 1) {
+            word &= flagBits[Integer.numberOfTrailingZeros(flags)][w];
+        }
+        for (int flags = flagsClear; flags != 0; flags &= flags - 1) {
+            word &= ~flagBits[Integer.numberOfTrailingZeros(flags)][w];
+        }
+        return word;
+    }
+
+    /**
+     * @return Bitset of the given region id among the given region bitsets, adding bitsets for new region ids as needed
+     */
+    private long [] regionBits(boolean home, int regionID) {
+        if (regionID >= homeRegionBits.length) {
+            int nRegions = homeRegionBits.length;
+            homeRegionBits = Arrays.copyOf(homeRegionBits, regionID + 1);
+            jobRegionBits = Arrays.copyOf(jobRegionBits, regionID + 1);
+            for (int id = nRegions; id <= regionID; id++) {
+                homeRegionBits[id] = new long[words(households.length)];
+                jobRegionBits[id] = new long[words(households.length)];
+            }
+        }
+        return home ? homeRegionBits[regionID] : jobRegionBits[regionID];
+    }
+
+    private static int words(int nRows) { return (nRows + 63) >>> 6; }
+
+    private static void setBit(long [] bits, int row) { bits[row >>> 6] |= 1L << row; }
+
+    private static void clearBit(long [] bits, int row) { bits[row >>> 6] &= ~(1L << row); }
+
+    //----- Getter/setter methods -----//
+
+    public int size() { return size; }
+
+    public Household getHousehold(int row) { return households[row]; }
+
+    double getBirthAge(int row) { return getDouble(row, BIRTH_AGE); }
+
+    void setBirthAge(int row, double age) { setDouble(row, BIRTH_AGE, age); }
+
+    int getBirthMonth(int row) { return getInt(row, BIRTH_MONTH); }
+
+    void setBirthMonth(int row, int month) { setInt(row, BIRTH_MONTH, month); }
+
+    int getBirthAgeBand(int row) { return getInt(row, BIRTH_AGE_BAND); }
+
+    void setBirthAgeBand(int row, int band) { setInt(row, BIRTH_AGE_BAND, band); }
+
+    double getBankBalance(int row) { return getDouble(row, BANK_BALANCE); }
+
+    void setBankBalance(int row, double bankBalance) { setDouble(row, BANK_BALANCE, bankBalance); }
+
+    double getAnnualGrossEmploymentIncome(int row) { return getDouble(row, ANNUAL_GROSS_EMPLOYMENT_INCOME); }
+
+    void setAnnualGrossEmploymentIncome(int row, double income) {
+        setDouble(row, ANNUAL_GROSS_EMPLOYMENT_INCOME, income);
+    }
+
+    double getMonthlyGrossEmploymentIncome(int row) { return getDouble(row, MONTHLY_GROSS_EMPLOYMENT_INCOME); }
+
+    void setMonthlyGrossEmploymentIncome(int row, double income) {
+        setDouble(row, MONTHLY_GROSS_EMPLOYMENT_INCOME, income);
+    }
+
+    double getMonthlyNetEmploymentIncome(int row) { return getDouble(row, MONTHLY_NET_EMPLOYMENT_INCOME); }
+
+    void setMonthlyNetEmploymentIncome(int row, double income) {
+        setDouble(row, MONTHLY_NET_EMPLOYMENT_INCOME, income);
+    }
+
+    double getMonthlyGrossRentalIncome(int row) { return getDouble(row, MONTHLY_GROSS_RENTAL_INCOME); }
+
+    void setMonthlyGrossRentalIncome(int row, double income) { setDouble(row, MONTHLY_GROSS_RENTAL_INCOME, income); }
+
+    double getMonthlyNetTotalIncome(int row) { return getDouble(row, MONTHLY_NET_TOTAL_INCOME); }
+
+    void setMonthlyNetTotalIncome(int row, double income) { setDouble(row, MONTHLY_NET_TOTAL_INCOME, income); }
+
+    /**
+     * Round a probability in [0, 1) to float precision, as stored if compact, keeping it below 1 (values at or above
+     * 1 - 2^-25 would otherwise round up to 1, which is out of range for inverse cumulative distributions)
+     */
+    static double toCompactProbability(double probability) {
+        return Math.min((float)probability, Math.nextDown(1.0f));
+    }
+
+    void setMonthlyRent(int row, double rent) { setDouble(row, MONTHLY_RENT, rent); }
+
+    void setHomeQuality(int row, int quality) { setInt(row, HOME_QUALITY, quality); }
+
+    double getIncomePercentile(int row) { return getDouble(row, INCOME_PERCENTILE); }
+
+    void setIncomePercentile(int row, double percentile) { setDouble(row, INCOME_PERCENTILE, percentile); }
+
+    double getPropensityToSave(int row) { return getDouble(row, PROPENSITY_TO_SAVE); }
+
+    void setPropensityToSave(int row, double propensity) { setDouble(row, PROPENSITY_TO_SAVE, propensity); }
+
+    boolean getFlag(int row, int flag) {
+        return (flagBits[Integer.numberOfTrailingZeros(flag)][row >>> 6] & (1L << row)) != 0;
+    }
+
+    /**
+     * Set a single flag. Note that, since bitsets are shared by many rows, flags must be set for one row at a time
+     */
+    void setFlag(int row, int flag, boolean value) {
+        if (value) {
+            setBit(flagBits[Integer.numberOfTrailingZeros(flag)], row);
+        } else {
+            clearBit(flagBits[Integer.numberOfTrailingZeros(flag)], row);
+        }
+    }
+
+    int getJobRegionID(int row) { return getInt(row, JOB_REGION_ID); }
+
+    void setJobRegionID(int row, int regionID) {
+        int oldRegionID = getInt(row, JOB_REGION_ID);
+        if (oldRegionID >= 0) clearBit(regionBits(false, oldRegionID), row);
+        setInt(row, JOB_REGION_ID, regionID);
+        if (regionID >= 0) setBit(regionBits(false, regionID), row);
+    }
+
+    int getHomeRegionID(int row) { return getInt(row, HOME_REGION_ID); }
+
+    void setHomeRegionID(int row, int regionID) {
+        int oldRegionID = getInt(row, HOME_REGION_ID);
+        if (oldRegionID >= 0) clearBit(regionBits(true, oldRegionID), row);
+        setInt(row, HOME_REGION_ID, regionID);
+        if (regionID >= 0) setBit(regionBits(true, regionID), row);
+    }
+
+    int getHomeHouseID(int row) { return getInt(row, HOME_HOUSE_ID); }
+
+    void setHomeHouseID(int row, int houseID) { setInt(row, HOME_HOUSE_ID, houseID); }
+}
@@ -0,0 +1,281 @@
+package housing;
+
+import java.util.ArrayList;
+
+/**************************************************************************************************
+ * Immutable read model of the market statistics used by households in their decisions. It is
+ * published once per month, after all collectors have been updated, and holds, for each region,
+ * flat primitive arrays indexed by quality band, together with several derived terms precomputed
+ * from them, such as the price-dependent part of the exponents of initial sale prices and
+ * buy-to-let rents and the minimum acceptable rents. Since it never changes after publication, it
+ * can be read concurrently without any locking.
+ *
+ * Decisions made while markets are being cleared, such as the rent set by an investor completing
+ * a purchase or the down-payment decided on requesting a loan, must read the statistics of those
+ * markets already cleared in the current month. To this end, a new snapshot is republished each
+ * time the statistics of a region are updated after clearing one of its markets, replacing only
+ * the statistics of that region and sharing those of all other regions with the previous
+ * snapshot. Republished snapshots keep the market version of the monthly snapshot they derive
+ * from.
+ *
+ * The snapshot also works as a regional affordability index: for each region, it keeps monotone
+ * (non-decreasing) price envelopes over quality bands, such that the maximum quality affordable
+ * for a given budget can be found by binary search rather than by a linear scan.
+ *
+ * Each snapshot also carries a market version, which is only increased when any of its market
+ * conditions has moved, in relative terms, beyond the home search cache tolerance since the last
+ * version was stamped. Households use this version to decide whether to reuse their home searches.
+ *
+ * @author agent
+ *
+ *************************************************************************************************/
+public final class MarketSnapshot {
+
+    //------------------//
+    //----- Fields -----//
+    //------------------//
+
+    private final int                   nQuality;
+    private final int                   version;
+    private final MarketSnapshot        versionBase; // Snapshot where the current version was stamped, null if this one
+    private final RegionalStatistics [] regional; // Regional statistics, indexed by regionID
+
+    // National variables
+    private final double                HPI; // National house price index
+    private final double                mortgageInterestRate; // Current mortgage interest rate
+
+    //------------------------//
+    //----- Constructors -----//
+    //------------------------//
+
+    /**
+     * Takes a snapshot of the current market statistics of all regions and of the national aggregates
+     *
+     * @param config Model's configuration parameters object
+     * @param regions List of regions, in regionID order
+     * @param previous Previously published snapshot, null if this is the first one
+     */
+    MarketSnapshot(Config config, ArrayList<Region> regions, MarketSnapshot previous) {
+        nQuality = config.N_QUALITY;
+        regional = new RegionalStatistics[regions.size()];
+        // Copy and pre-compute regional variables
+        for (Region region : regions) regional[region.getRegionID()] = new RegionalStatistics(config, region);
+        // Copy national variables
+        HPI = Model.housingMarketStats.getHPI();
+        mortgageInterestRate = Model.bank.getMortgageInterestRate();
+        // Stamp a new market version unless market conditions are still within tolerance of the current version base
+        if (previous == null) {
+            version = 0;
+            versionBase = null;
+        } else {
+            MarketSnapshot base = (previous.versionBase == null) ? previous : previous.versionBase;
+            if (config.HOME_SEARCH_CACHE_TOLERANCE > 0.0 && !hasMovedBeyond(base, config.HOME_SEARCH_CACHE_TOLERANCE)) {
+                version = previous.version;
+                versionBase = base;
+            } else {
+                version = previous.version + 1;
+                versionBase = null;
+            }
+        }
+    }
+
+    /**
+     * Takes a snapshot equal to a previous one except for the market statistics of a given region, which are taken
+     * again from the current statistics of that region. National variables and the market version are kept from the
+     * previous snapshot
+     *
+     * @param config Model's configuration parameters object
+     * @param previous Previously published snapshot
+     * @param region Region whose statistics are to be taken again
+     */
+    MarketSnapshot(Config config, MarketSnapshot previous, Region region) {
+        nQuality = previous.nQuality;
+        regional = previous.regional.clone();
+        regional[region.getRegionID()] = new RegionalStatistics(config, region);
+        HPI = previous.HPI;
+        mortgageInterestRate = previous.mortgageInterestRate;
+        version = previous.version;
+        versionBase = (previous.versionBase == null) ? previous : previous.versionBase;
+    }
+
+    //-------------------//
+    //----- Methods -----//
+    //-------------------//
+
+    /**
+     * Check whether any of the market conditions entering households' home searches (regional sale and rental prices
+     * per quality band and regional long-term HPA, as well as the national HPI and the mortgage interest rate) has
+     * moved, in relative terms, beyond the given tolerance with respect to a reference snapshot. Note that rates enter
+     * the comparison as growth factors (1 + rate)
+     */
+    private boolean hasMovedBeyond(MarketSnapshot reference, double tolerance) {
+        for (int r = 0; r < regional.length; r++) {
+            RegionalStatistics stats = regional[r];
+            RegionalStatistics referenceStats = reference.regional[r];
+            for (int q = 0; q < nQuality; q++) {
+                if (hasMovedBeyond(stats.expAvSalePrice[q], referenceStats.expAvSalePrice[q], tolerance)
+                        || hasMovedBeyond(stats.expAvRentPrice[q], referenceStats.expAvRentPrice[q], tolerance)) {
+                    return true;
+                }
+            }
+            if (hasMovedBeyond(1.0 + stats.longTermHPAExpectation, 1.0 + referenceStats.longTermHPAExpectation,
+                    tolerance)) return true;
+        }
+        return hasMovedBeyond(HPI, reference.HPI, tolerance)
+                || hasMovedBeyond(1.0 + mortgageInterestRate, 1.0 + reference.mortgageInterestRate, tolerance);
+    }
+
+    private static boolean hasMovedBeyond(double value, double reference, double tolerance) {
+        return Math.abs(value - reference) > tolerance*Math.abs(reference);
+    }
+
+    /**
+     * Computes the best quality of house that a buyer could expect to get in a given region for a given price. If
+     * return value is -1, the buyer can't afford even lowest quality house.
+     *
+     * @param region Region where to buy
+     * @param price Price the buyer is ready to pay
+     */
+    int getMaxSaleQualityForPrice(Region region, double price) {
+        return getMaxQualityForPrice(regional[region.getRegionID()].salePriceEnvelope, price);
+    }
+
+    /**
+     * Computes the best quality of house that a renter could expect to get in a given region for a given rent. If
+     * return value is -1, the renter can't afford even lowest quality house.
+     *
+     * @param region Region where to rent
+     * @param price Rent the renter is ready to pay
+     */
+    int getMaxRentalQualityForPrice(Region region, double price) {
+        return getMaxQualityForPrice(regional[region.getRegionID()].rentPriceEnvelope, price);
+    }
+
+    /**
+     * Binary search for the highest quality band whose envelope price is not above the given price. Since the envelope
+     * at a given quality is the minimum price among this and all higher qualities, this is exactly the highest quality
+     * band whose own price is not above the given price, as found by a linear scan down from the top quality band
+     */
+    private int getMaxQualityForPrice(double [] envelope, double price) {
+        int low = 0;
+        int high = nQuality - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (envelope[mid] <= price) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return high;
+    }
+
+    //----- Getter/setter methods -----//
+
+    int getVersion() { return version; }
+
+    public double getExpAvSalePriceForQuality(Region region, int quality) {
+        return regional[region.getRegionID()].expAvSalePrice[quality];
+    }
+
+    double getInitialSalePriceExponent(Region region, int quality) {
+        return regional[region.getRegionID()].initialSalePriceExponent[quality];
+    }
+
+    public double getExpAvRentPriceForQuality(Region region, int quality) {
+        return regional[region.getRegionID()].expAvRentPrice[quality];
+    }
+
+    double getBuyToLetRentExponent(Region region, int quality) {
+        return regional[region.getRegionID()].buyToLetRentExponent[quality];
+    }
+
+    double getMinAcceptableRent(Region region, int quality) {
+        return regional[region.getRegionID()].minAcceptableRent[quality];
+    }
+
+    /**
+     * @return Minimum price needed to afford, at least, the given quality band in the given region
+     */
+    double getMinSalePriceForQuality(Region region, int quality) {
+        return regional[region.getRegionID()].salePriceEnvelope[quality];
+    }
+
+    /**
+     * @return Minimum rent needed to afford, at least, the given quality band in the given region
+     */
+    double getMinRentPriceForQuality(Region region, int quality) {
+        return regional[region.getRegionID()].rentPriceEnvelope[quality];
+    }
+
+    double getLongTermHPAExpectation(Region region) { return regional[region.getRegionID()].longTermHPAExpectation; }
+
+    double getDesiredPurchasePriceDivisor(Region region) {
+        return regional[region.getRegionID()].desiredPurchasePriceDivisor;
+    }
+
+    public double getExpAvFlowYield(Region region) { return regional[region.getRegionID()].expAvFlowYield; }
+
+    public double getHPI() { return HPI; }
+
+    public double getMortgageInterestRate() { return mortgageInterestRate; }
+
+    /**
+     * Immutable market statistics of a single region, with variables per quality band stored as flat primitive arrays
+     * indexed by quality, such that a snapshot can replace the statistics of one region without copying the rest
+     */
+    private static final class RegionalStatistics {
+
+        // Regional variables per quality band, indexed by quality
+        private final double []     expAvSalePrice; // Exponential moving average sale price
+        private final double []     initialSalePriceExponent; // Markup plus log sale price minus months-on-market effect
+        private final double []     expAvRentPrice; // Exponential moving average rental price
+        private final double []     buyToLetRentExponent; // Markup plus log rental price minus months-on-market effect
+        private final double []     minAcceptableRent; // Minimum rent BTL investors are ready to accept
+        private final double []     salePriceEnvelope; // Minimum sale price among this and higher qualities
+        private final double []     rentPriceEnvelope; // Minimum rental price among this and higher qualities
+
+        // Regional variables
+        private final double        longTermHPAExpectation; // Expected long-term house price appreciation
+        private final double        desiredPurchasePriceDivisor; // Expected HPA effect on desired purchase prices
+        private final double        expAvFlowYield; // Exponential moving average of the flow gross rental yield
+
+        private RegionalStatistics(Config config, Region region) {
+            int nQuality = config.N_QUALITY;
+            expAvSalePrice = new double[nQuality];
+            initialSalePriceExponent = new double[nQuality];
+            expAvRentPrice = new double[nQuality];
+            buyToLetRentExponent = new double[nQuality];
+            minAcceptableRent = new double[nQuality];
+            salePriceEnvelope = new double[nQuality];
+            rentPriceEnvelope = new double[nQuality];
+            // Weight of months-on-market effect for buy-to-let rents
+            final double beta = config.RENT_MARKUP/Math.log(config.RENT_EQ_MONTHS_ON_MARKET);
+            for (int q = 0; q < nQuality; q++) {
+                expAvSalePrice[q] = region.regionalHousingMarketStats.getExpAvSalePriceForQuality(q);
+                initialSalePriceExponent[q] = config.SALE_MARKUP + Math.log(expAvSalePrice[q] + 1.0)
+                        - config.SALE_WEIGHT_MONTHS_ON_MARKET
+                        * Math.log(region.regionalHousingMarketStats.getExpAvMonthsOnMarketForQuality(q) + 1.0);
+                expAvRentPrice[q] = region.regionalRentalMarketStats.getExpAvSalePriceForQuality(q);
+                buyToLetRentExponent[q] = config.RENT_MARKUP + Math.log(expAvRentPrice[q] + 1.0)
+                        - beta*Math.log(region.regionalRentalMarketStats.getExpAvMonthsOnMarketForQuality(q) + 1.0);
+                minAcceptableRent[q] = expAvSalePrice[q]
+                        /(config.RENT_MAX_AMORTIZATION_PERIOD*config.constants.MONTHS_IN_YEAR);
+            }
+            // Build price envelopes, running from the highest to the lowest quality band
+            salePriceEnvelope[nQuality - 1] = expAvSalePrice[nQuality - 1];
+            rentPriceEnvelope[nQuality - 1] = expAvRentPrice[nQuality - 1];
+            for (int q = nQuality - 2; q >= 0; q--) {
+                salePriceEnvelope[q] = Math.min(expAvSalePrice[q], salePriceEnvelope[q + 1]);
+                rentPriceEnvelope[q] = Math.min(expAvRentPrice[q], rentPriceEnvelope[q + 1]);
+            }
+            longTermHPAExpectation = region.regionalHousingMarketStats.getLongTermHPA()*config.HPA_EXPECTATION_FACTOR;
+            // TODO: The capping of this factor intends to avoid negative and too large desired prices, the 0.9 is a
+            // TODO: purely artificial fudge parameter. This formula should be reviewed and changed!
+            double HPAFactor = config.BUY_WEIGHT_HPA*longTermHPAExpectation;
+            if (HPAFactor > 0.9) HPAFactor = 0.9;
+            desiredPurchasePriceDivisor = 1.0 - HPAFactor;
+            expAvFlowYield = region.regionalRentalMarketStats.getExpAvFlowYield();
+        }
+    }
+}
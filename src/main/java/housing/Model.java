@@ -55,6 +55,7 @@ public class Model {
     public static MicroDataRecorder     microDataRecorder;
     public static int	                nSimulation; // To keep track of the simulation number
     public static int	                t; // To keep track of time (in months)
+    static EventCalendar                eventCalendar; // Scheduled household events, null unless event-driven
 
     static Government		            government;
 
@@ -80,6 +81,7 @@ public class Model {
         construction = new Construction(config, rand, geography);
         centralBank = new CentralBank();
         bank = new Bank();
+        if (config.EVENT_DRIVEN_HOUSEHOLDS) eventCalendar = new EventCalendar();
 
         recorder = new Recorder(outputFolder, geography);
         transactionRecorder = new TransactionRecorder(outputFolder);
@@ -147,6 +149,7 @@ public class Model {
 
         // After the last simulation, clean up
         recorder.finish(config.recordCoreIndicators);
+        demographics.getHouseholdTable().close();
 
         //Stop the program when finished
 		System.exit(0);
@@ -157,10 +160,13 @@ public class Model {
 		construction.init();
 		bank.init();
 		centralBank.init();
+        if (eventCalendar != null) eventCalendar.clear();
         housingMarketStats.init();
         rentalMarketStats.init();
         householdStats.init();
         geography.init();
+        // Publish the initial snapshot of market statistics for households to base their decisions on
+        geography.publishMarketSnapshot();
 	}
 
 	private static void modelStep() {
@@ -168,6 +174,10 @@ public class Model {
         demographics.step();
         // Update number of houses in each region
         construction.step();
+        // At the first time step, if required, allocate the initial housing stock among the initial population
+        if (t == 0) geography.allocateInitialHousing(config.INITIAL_ALLOCATION_ROUNDS);
+        // If event-driven, wake up households with events due this month
+        if (eventCalendar != null) eventCalendar.fire(t);
         // Update, for each region, its households, market statistics collectors and markets
         geography.step();
         // Update all sale market statistics by collecting and aggregating results from the regions
@@ -182,6 +192,8 @@ public class Model {
 		bank.step(demographics.getTotalPopulation());
         // Update central bank policies (currently empty!)
 		centralBank.step(coreIndicators);
+        // Publish a new snapshot of market statistics for households to base their next decisions on
+        geography.publishMarketSnapshot();
 	}
 
     /**
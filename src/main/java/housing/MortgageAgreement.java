@@ -56,7 +56,9 @@ public class MortgageAgreement extends PaymentAgreement {
         // If more payments are still due...
         } else {
             nPayments -= 1; // ...then reduce number of payments due by one,
-            principal = principal*(1.0 + monthlyInterestRate) - monthlyPayment; // ...reduce amount due by amount to be paid this month
+            double newPrincipal = principal*(1.0 + monthlyInterestRate) - monthlyPayment; // ...reduce amount due by amount to be paid this month
+            Model.bank.updateCredit(this, newPrincipal - principal);
+            principal = newPrincipal;
             return monthlyPayment; // ...and return the monthly payment
         }
 	}
@@ -70,6 +72,7 @@ public class MortgageAgreement extends PaymentAgreement {
 	double payoff(double amount) {
 		if (amount >= principal) {
             amount = principal;
+            Model.bank.updateCredit(this, -amount);
             principal = 0.0;
             monthlyPayment = 0.0;
             nPayments = 0;
@@ -77,6 +80,7 @@ public class MortgageAgreement extends PaymentAgreement {
 		} else {
 			// Since monthlyPayment is proportional to principal, any amount paid off decreases monthlyPayment in the same proportion
 			monthlyPayment *= (principal - amount)/principal;
+			Model.bank.updateCredit(this, -amount);
 			principal -= amount;
 		}
         return amount;
@@ -0,0 +1,26 @@
+package housing;
+
+/**************************************************************************************************
+ * Reusable holder for the terms of a mortgage quote, i.e., the terms the bank would offer for a
+ * given house price and down-payment, as found by Bank.quote without signing any contract. This
+ * allows households to explore the mortgage they would get, for instance to estimate its monthly
+ * payment or leverage, without allocating any MortgageAgreement, which are only created when a
+ * loan is actually requested.
+ *
+ * @author agent
+ *
+ *************************************************************************************************/
+public class MortgageQuote {
+
+    //------------------//
+    //----- Fields -----//
+    //------------------//
+
+    public boolean  approved; // False if the bank declines the mortgage, in which case no other term is meaningful
+    public double   principal;
+    public double   downPayment;
+    public double   monthlyPayment;
+    public double   purchasePrice;
+    double          monthlyInterestRate;
+    int             nPayments;
+}
@@ -0,0 +1,163 @@
+package housing;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**************************************************************************************************
+ * Off-heap storage backend for the household table, keeping each household as a fixed-width
+ * record (the double variables kept in full precision, followed by the rest of double variables
+ * as floats, and then by all int variables) outside the Java heap, such that the primitive state
+ * of very large populations does not add to heap size nor to garbage collection times. Records
+ * are stored in segments of a fixed number of rows, which are added as the population grows
+ * without ever copying existing rows, and which can be either direct byte buffers or consecutive
+ * memory-mapped regions of a file, the latter allowing the operating system to page records to
+ * local disk when they do not fit in memory. The backing file is only needed while the model
+ * runs, so it is deleted when the table is closed, or otherwise when the program exits.
+ *
+ * @author agent
+ *
+ *************************************************************************************************/
+public class OffHeapHouseholdTable extends HouseholdTable {
+
+    //------------------//
+    //----- Fields -----//
+    //------------------//
+
+    private static final int    SEGMENT_SHIFT = 16; // Segments of 2^16 rows
+    private static final int    SEGMENT_ROWS = 1 << SEGMENT_SHIFT;
+    private static final int    SEGMENT_MASK = SEGMENT_ROWS - 1;
+
+    private int                 nDoubleColumns; // Number of double columns kept in full precision
+    private int                 floatOffset; // Position of the first float variable in a record
+    private int                 intOffset; // Position of the first int variable in a record
+    private int                 recordBytes; // Padded to longs
+    private ByteBuffer []       segments = new ByteBuffer[0];
+    private File                file; // Backing file, null for direct buffers
+    private FileChannel         channel; // Channel to the backing file, null for direct buffers or once closed
+
+    //------------------------//
+    //----- Constructors -----//
+    //------------------------//
+
+    /**
+     * @param initialCapacity Number of handles to allocate initially, the table growing as needed beyond this number
+     * @param nDoubleColumns Number of double columns to keep in full precision, the rest being stored as floats
+     * @param fileName Address of the file to map segments to, which is created or overwritten, or null to use direct
+     *                 buffers instead
+     */
+    OffHeapHouseholdTable(int initialCapacity, int nDoubleColumns, String fileName) {
+        super(initialCapacity);
+        this.nDoubleColumns = nDoubleColumns;
+        floatOffset = 8*nDoubleColumns;
+        intOffset = floatOffset + 4*(N_DOUBLE_COLUMNS - nDoubleColumns);
+        recordBytes = (intOffset + 4*N_INT_COLUMNS + 7) & ~7;
+        if (fileName != null) {
+            file = new File(fileName);
+            file.deleteOnExit();
+            try {
+                RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+                randomAccessFile.setLength(0);
+                channel = randomAccessFile.getChannel();
+            } catch (IOException ioe) {
+                System.out.println("Exception " + ioe + " while trying to open household store file '" + fileName
+                        + "'");
+                ioe.printStackTrace();
+                System.exit(0);
+            }
+        }
+    }
+
+    //-------------------//
+    //----- Methods -----//
+    //-------------------//
+
+    @Override
+    double getDouble(int row, int column) {
+        ByteBuffer segment = segments[row >>> SEGMENT_SHIFT];
+        if (column < nDoubleColumns) return segment.getDouble((row & SEGMENT_MASK)*recordBytes + 8*column);
+        return segment.getFloat((row & SEGMENT_MASK)*recordBytes + floatOffset + 4*(column - nDoubleColumns));
+    }
+
+    @Override
+    void setDouble(int row, int column, double value) {
+        ByteBuffer segment = segments[row >>> SEGMENT_SHIFT];
+        if (column < nDoubleColumns) {
+            segment.putDouble((row & SEGMENT_MASK)*recordBytes + 8*column, value);
+        } else {
+            segment.putFloat((row & SEGMENT_MASK)*recordBytes + floatOffset + 4*(column - nDoubleColumns),
+                    (float)value);
+        }
+    }
+
+    @Override
+    int getInt(int row, int column) {
+        return segments[row >>> SEGMENT_SHIFT].getInt((row & SEGMENT_MASK)*recordBytes + intOffset + 4*column);
+    }
+
+    @Override
+    void setInt(int row, int column, int value) {
+        segments[row >>> SEGMENT_SHIFT].putInt((row & SEGMENT_MASK)*recordBytes + intOffset + 4*column, value);
+    }
+
+    /**
+     * Add as many new segments as needed, either allocating them as direct buffers or mapping them to consecutive
+     * regions of the backing file
+     */
+    @Override
+    void ensureCapacity(int capacity) {
+        int nSegments = (capacity + SEGMENT_MASK) >>> SEGMENT_SHIFT;
+        if (nSegments <= segments.length) return;
+        ByteBuffer [] newSegments = new ByteBuffer[nSegments];
+        System.arraycopy(segments, 0, newSegments, 0, segments.length);
+        for (int i = segments.length; i < nSegments; i++) {
+            if (file == null) {
+                newSegments[i] = ByteBuffer.allocateDirect(SEGMENT_ROWS*recordBytes);
+            } else {
+                try {
+                    newSegments[i] = channel.map(FileChannel.MapMode.READ_WRITE,
+                            (long)i*SEGMENT_ROWS*recordBytes, SEGMENT_ROWS*recordBytes);
+                } catch (IOException ioe) {
+                    System.out.println("Exception " + ioe + " while trying to map household store segment " + i);
+                    ioe.printStackTrace();
+                    System.exit(0);
+                }
+            }
+            newSegments[i].order(ByteOrder.nativeOrder());
+        }
+        segments = newSegments;
+    }
+
+    @Override
+    void copyRow(int from, int to) {
+        ByteBuffer source = segments[from >>> SEGMENT_SHIFT];
+        ByteBuffer destination = segments[to >>> SEGMENT_SHIFT];
+        int sourceOffset = (from & SEGMENT_MASK)*recordBytes;
+        int destinationOffset = (to & SEGMENT_MASK)*recordBytes;
+        for (int i = 0; i < recordBytes; i += 8) {
+            destination.putLong(destinationOffset + i, source.getLong(sourceOffset + i));
+        }
+    }
+
+    /**
+     * Release all segments, closing the channel to the backing file and deleting it. Note that mapped segments are
+     * only unmapped once garbage collected, which on some platforms prevents the file from being deleted until the
+     * program exits
+     */
+    @Override
+    void close() {
+        segments = new ByteBuffer[0];
+        if (channel == null) return;
+        try {
+            channel.close();
+        } catch (IOException ioe) {
+            System.out.println("Exception " + ioe + " while trying to close household store file '" + file + "'");
+            ioe.printStackTrace();
+        }
+        channel = null;
+        if (!file.delete()) System.out.println("Household store file '" + file + "' will be deleted on exit");
+    }
+}
@@ -0,0 +1,169 @@
+package housing;
+
+/**************************************************************************************************
+ * Compact map from houses to their payment agreements, always sorted by house id, used by each
+ * household to keep track of the houses it owns or rents and of the houses it rents out. Since
+ * most households hold at most a couple of agreements, the first two entries are kept in inline
+ * fields, only growing into sorted parallel arrays for larger buy-to-let portfolios. Entries can
+ * be accessed by their position, from 0 to size() - 1, which allows for iterating over them in
+ * house id order without any iterator objects, and for removing them while iterating by means of
+ * removeAt.
+ *
+ * @author agent
+ *
+ *************************************************************************************************/
+public class PaymentAgreementMap<A extends PaymentAgreement> {
+
+    //------------------//
+    //----- Fields -----//
+    //------------------//
+
+    private static final int    INITIAL_ARRAY_CAPACITY = 4;
+
+    private int                 size;
+    // Inline entries, only used while no arrays have been allocated
+    private House               house0;
+    private House               house1;
+    private A                   agreement0;
+    private A                   agreement1;
+    // Parallel arrays, allocated when a third entry is added, and kept from then on
+    private House []            houses;
+    private PaymentAgreement [] agreements;
+
+    //-------------------//
+    //----- Methods -----//
+    //-------------------//
+
+    /**
+     * @return The payment agreement associated to the given house, or null if the house is not in the map
+     */
+    public A get(House house) {
+        int index = indexOf(house);
+        return (index >= 0) ? getAgreement(index) : null;
+    }
+
+    boolean containsKey(House house) { return indexOf(house) >= 0; }
+
+    /**
+     * Associate the given payment agreement to the given house, replacing any previous agreement for the same house
+     */
+    void put(House house, A agreement) {
+        int index = indexOf(house);
+        if (index >= 0) {
+            set(index, house, agreement);
+            return;
+        }
+        // If the house is not yet in the map, then insert it at its position in house id order...
+        index = -index - 1;
+        // ...first moving inline entries to arrays if there is no room left for them...
+        if (houses == null && size == 2) {
+            houses = new House[INITIAL_ARRAY_CAPACITY];
+            agreements = new PaymentAgreement[INITIAL_ARRAY_CAPACITY];
+            houses[0] = house0;
+            houses[1] = house1;
+            agreements[0] = agreement0;
+            agreements[1] = agreement1;
+            house0 = null;
+            house1 = null;
+            agreement0 = null;
+            agreement1 = null;
+        }
+        // ...or growing the arrays if they are full
+        if (houses != null && size == houses.length) {
+            House [] newHouses = new House[2*size];
+            PaymentAgreement [] newAgreements = new PaymentAgreement[2*size];
+            System.arraycopy(houses, 0, newHouses, 0, size);
+            System.arraycopy(agreements, 0, newAgreements, 0, size);
+            houses = newHouses;
+            agreements = newAgreements;
+        }
+        // Then shift any entries after this position and insert the new entry
+        for (int i = size; i > index; i--) set(i, getHouse(i - 1), getAgreement(i - 1));
+        set(index, house, agreement);
+        size++;
+    }
+
+    /**
+     * Remove the given house and its payment agreement from the map, if present
+     */
+    void remove(House house) {
+        int index = indexOf(house);
+        if (index >= 0) removeAt(index);
+    }
+
+    /**
+     * Remove the entry at the given position, shifting any subsequent entries one position back. Thus, when iterating
+     * by position, the next entry to visit after removing entry i is again at position i
+     */
+    void removeAt(int index) {
+        for (int i = index; i < size - 1; i++) set(i, getHouse(i + 1), getAgreement(i + 1));
+        set(size - 1, null, null);
+        size--;
+    }
+
+    /**
+     * Remove all entries, keeping any allocated arrays for reuse
+     */
+    void clear() {
+        for (int i = 0; i < size; i++) set(i, null, null);
+        size = 0;
+    }
+
+    /**
+     * Binary search for the position of the given house in house id order
+     *
+     * @return The position of the house if present, otherwise -(insertion point) - 1
+     */
+    private int indexOf(House house) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int comparison = getHouse(mid).compareTo(house);
+            if (comparison < 0) {
+                low = mid + 1;
+            } else if (comparison > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private void set(int index, House house, A agreement) {
+        if (houses != null) {
+            houses[index] = house;
+            agreements[index] = agreement;
+        } else if (index == 0) {
+            house0 = house;
+            agreement0 = agreement;
+        } else {
+            house1 = house;
+            agreement1 = agreement;
+        }
+    }
+
+    //----- Getter/setter methods -----//
+
+    public int size() { return size; }
+
+    public boolean isEmpty() { return size == 0; }
+
+    /**
+     * @return The house at the given position, in house id order
+     */
+    public House getHouse(int index) {
+        if (houses != null) return houses[index];
+        return (index == 0) ? house0 : house1;
+    }
+
+    /**
+     * @return The payment agreement at the given position, in house id order
+     */
+    @SuppressWarnings("unchecked")
+    public A getAgreement(int index) {
+        if (houses != null) return (A)agreements[index];
+        return (index == 0) ? agreement0 : agreement1;
+    }
+}
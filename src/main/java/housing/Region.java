@@ -33,6 +33,8 @@ public class Region {
 
     private int                             regionID;
     private int                             housingStock;
+    private HouseholdBatch                  householdBatch; // Batch evaluation of the household step, if enabled
+    private boolean                         swapRemoval; // True to remove households by swapping with the last one
 
     //------------------------//
     //----- Constructors -----//
@@ -45,6 +47,8 @@ public class Region {
         this.targetPopulation = targetPopulation;
         this.regionID = regionID;
         households = new ArrayList<>(targetPopulation*2);
+        if (config.BATCH_HOUSEHOLD_DECISIONS) householdBatch = new HouseholdBatch(config);
+        swapRemoval = config.SAMPLE_DEATHS_FROM_ROSTERS;
         houseSaleMarket = new HouseSaleMarket(config, rand, this);
         houseRentalMarket = new HouseRentalMarket(config, rand, this);
         regionalHouseholdStats = new RegionalHouseholdStats(config, this);
@@ -75,11 +79,19 @@ public class Region {
      */
     void stepHouseholds() {
         // Update regional households' consumption, housing decisions, and corresponding regional bids and offers
-        for (Household h : households) h.step();
+        if (householdBatch != null) {
+            householdBatch.step(households);
+        } else if (Model.eventCalendar != null) {
+            for (Household h : households) h.stepEventDriven();
+        } else {
+            for (Household h : households) h.step();
+        }
     }
 
     /**
-     * One of the two main methods of the class: clears both markets, recording data as appropriate
+     * One of the two main methods of the class: clears both markets, recording data as appropriate. After each market
+     * is cleared and its statistics updated, the statistics of this region are republished in the market snapshot,
+     * such that decisions taken while clearing later markets read them
      */
     void stepMarkets() {
         // Store regional sale market bid and offer prices and averages before bids are matched by clearing the market
@@ -88,12 +100,44 @@ public class Region {
         houseSaleMarket.clearMarket();
         // Compute and stores several regional housing market statistics after bids are matched by clearing the market (such as HPI, HPA)
         regionalHousingMarketStats.postClearingRecord();
+        Model.geography.republishMarketSnapshot(this);
         // Store regional rental market bid and offer prices and averages before bids are matched by clearing the market
         regionalRentalMarketStats.preClearingRecord();
         // Clear regional rental market
         houseRentalMarket.clearMarket();
         // Compute and stores several regional rental market statistics after bids are matched by clearing the market (such as HPI, HPA)
         regionalRentalMarketStats.postClearingRecord();
+        Model.geography.republishMarketSnapshot(this);
+    }
+
+    /**
+     * Add a household to the list of households of the region
+     */
+    void addHousehold(Household household) {
+        household.regionPosition = households.size();
+        households.add(household);
+    }
+
+    /**
+     * Remove a household from the list of households of the region, either keeping the order of the remaining ones or,
+     * if swap removal is enabled, in constant time by moving the last household of the list into its place
+     */
+    void removeHousehold(Household household) {
+        if (!swapRemoval) {
+            households.remove(household);
+            return;
+        }
+        int position = household.regionPosition;
+        if (position < 0 || position >= households.size() || households.get(position) != household) {
+            System.out.println("Strange: removing a household which is not in region " + regionID);
+            return;
+        }
+        Household last = households.remove(households.size() - 1);
+        if (last != household) {
+            households.set(position, last);
+            last.regionPosition = position;
+        }
+        household.regionPosition = -1;
     }
 
     //----- Getter/setter methods -----//
@@ -104,5 +148,5 @@ public class Region {
 
     void increaseHousingStock () { housingStock++; }
     
-    int getRegionID() { return regionID; }
+    public int getRegionID() { return regionID; }
 }
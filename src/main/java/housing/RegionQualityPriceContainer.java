@@ -42,4 +42,6 @@ public class RegionQualityPriceContainer {
     public double getExpAvPrice() { return expAvPrice; }
 
     public double getDesiredPrice() { return desiredPrice; }
+
+    void setDesiredPrice(double desiredPrice) { this.desiredPrice = desiredPrice; }
 }
@@ -1,4 +1,43 @@
 package housing;
 
+/**************************************************************************************************
+ * Class to represent a rental contract, which doubles as the record of the tenancy it rules, as it
+ * is shared by the tenant (at its house payments), the landlord (at its rental contracts) and the
+ * house itself, and it links all three of them. Thus, any of them can reach the tenancy, and
+ * through it the others, in constant time, without looking it up at another agent's records.
+ *
+ * @author Adrian Carro
+ *
+ *************************************************************************************************/
 public class RentalAgreement extends PaymentAgreement {
+
+    //------------------//
+    //----- Fields -----//
+    //------------------//
+
+    House           house;
+    IHouseOwner     landlord;
+    Household       tenant;
+
+    //------------------------//
+    //----- Constructors -----//
+    //------------------------//
+
+    RentalAgreement(House house, Household tenant) {
+        this.house = house;
+        this.landlord = house.owner;
+        this.tenant = tenant;
+    }
+
+    //-------------------//
+    //----- Methods -----//
+    //-------------------//
+
+    //----- Getter/setter methods -----//
+
+    public House getHouse() { return house; }
+
+    public IHouseOwner getLandlord() { return landlord; }
+
+    public Household getTenant() { return tenant; }
 }
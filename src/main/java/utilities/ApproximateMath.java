@@ -0,0 +1,82 @@
+package utilities;
+
+/**
+ *  Utility class with table-based approximations to the exponential, logarithm, power and logistic (sigma) functions,
+ *  to be used instead of their exact versions wherever a tiny, bounded loss of accuracy can be traded for throughput.
+ *
+ *  - exp(x) reduces its argument as x = (k*N + j)*ln(2)/N + r, with N = 256 and |r| <= ln(2)/(2N), splitting ln(2)/N
+ *    in two parts such that this reduction adds no error growing with |x|, and then finds exp(x) = 2^k * 2^(j/N) *
+ *    exp(r), with 2^(j/N) read from a table and exp(r) given by a third degree polynomial, with a maximum relative
+ *    error of about 2e-13 for |x| < 700 (falling back on Math.exp beyond that)
+ *  - log(x) splits x as 2^e * m, with 1 <= m < 2, finds the nearest of N = 256 tabulated centres c in [1, 2) from the
+ *    leading bits of m, and then finds log(x) = e*ln(2) + log(c) + log(1 + r), with r = m/c - 1 and log(1 + r) given
+ *    by a fourth degree polynomial, with a maximum absolute error of about 6e-15 where |log(x)| < 1 and a maximum
+ *    relative error of about 5e-15 elsewhere, for positive normal numbers (falling back on Math.log otherwise). Note
+ *    the absolute bound close to x = 1, where log(x) vanishes
+ *  - pow(x, y) = exp(y*log(x)) for positive x, with a relative error bounded by about |y*log(x)|*5e-15 + |y|*6e-15
+ *    + 2e-13 (falling back on Math.pow for non-positive x)
+ *  - sigma(x) = 1/(1 + exp(-x)), with a maximum relative error of about 2e-13
+ *
+ *  The main method of ApproximateMathValidation can be used to check these bounds.
+ *
+ *  @author agent
+ */
+public class ApproximateMath {
+
+    //------------------//
+    //----- Fields -----//
+    //------------------//
+
+    private static final int        TABLE_BITS = 8;
+    private static final int        N = 1 << TABLE_BITS;
+    private static final double     LN2 = Math.log(2.0);
+    private static final double     N_OVER_LN2 = N/LN2;
+    // ln(2)/N split into a leading part, exact when multiplied by any reduced exponent, and a trailing correction
+    private static final double     LN2_OVER_N_HI = 6.93147180369123816490e-01/N;
+    private static final double     LN2_OVER_N_LO = 1.90821492927058770002e-10/N;
+    private static final double []  EXP_TABLE = new double[N]; // 2^(j/N)
+    private static final double []  LOG_TABLE = new double[N]; // log(c_j), with centres c_j = 1 + (j + 0.5)/N
+    private static final double []  INVERSE_TABLE = new double[N]; // 1/c_j
+
+    static {
+        for (int j = 0; j < N; j++) {
+            EXP_TABLE[j] = Math.pow(2.0, (double)j/N);
+            double c = 1.0 + (j + 0.5)/N;
+            LOG_TABLE[j] = Math.log(c);
+            INVERSE_TABLE[j] = 1.0/c;
+        }
+    }
+
+    //-------------------//
+    //----- Methods -----//
+    //-------------------//
+
+    public static double exp(double x) {
+        if (!(x > -700.0 && x < 700.0)) return Math.exp(x); // Also for NaN
+        long k = (long)Math.floor(x*N_OVER_LN2 + 0.5);
+        double r = (x - k*LN2_OVER_N_HI) - k*LN2_OVER_N_LO;
+        int j = (int)(k & (N - 1));
+        long e = k >> TABLE_BITS;
+        double p = 1.0 + r*(1.0 + r*(0.5 + r*(1.0/6.0)));
+        return EXP_TABLE[j]*p*Double.longBitsToDouble((e + 1023L) << 52);
+    }
+
+    public static double log(double x) {
+        if (!(x >= Double.MIN_NORMAL && x < Double.POSITIVE_INFINITY)) return Math.log(x); // Also for NaN
+        long bits = Double.doubleToRawLongBits(x);
+        int e = (int)(bits >>> 52) - 1023;
+        long mantissa = bits & 0xfffffffffffffL;
+        int j = (int)(mantissa >>> (52 - TABLE_BITS));
+        double m = Double.longBitsToDouble(mantissa | 0x3ff0000000000000L);
+        double r = m*INVERSE_TABLE[j] - 1.0;
+        double p = r*(1.0 - r*(0.5 - r*(1.0/3.0 - r*0.25)));
+        return e*LN2 + LOG_TABLE[j] + p;
+    }
+
+    public static double pow(double x, double y) {
+        if (!(x > 0.0)) return Math.pow(x, y);
+        return exp(y*log(x));
+    }
+
+    public static double sigma(double x) { return 1.0/(1.0 + exp(-x)); }
+}
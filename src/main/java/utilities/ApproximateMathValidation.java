@@ -0,0 +1,115 @@
+package utilities;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ *  Validation suite for the approximate mathematical functions in ApproximateMath, to be run from the command line.
+ *
+ *  - With no arguments, it sweeps each approximate function over the ranges of arguments used by the model (and well
+ *    beyond them), reporting its maximum error with respect to the exact function, as well as its time per call
+ *  - With the addresses of two core output files (Output-run1.csv) of runs with the same configuration and seed, the
+ *    first one with FAST_MATH = false and the second one with FAST_MATH = true, and optionally a number of initial
+ *    time steps to discard, it compares the distributions over time of a set of key model outputs, reporting their
+ *    means and standard deviations in both runs, the relative difference between these means, and the two-sample
+ *    Kolmogorov-Smirnov statistic between both distributions. Note that, since the approximation changes prices by
+ *    tiny amounts and this changes the outcome of some later decisions, individual trajectories soon diverge, and
+ *    differences should be assessed against those between two exact runs with different seeds (see OutputComparison)
+ *
+ *  @author agent
+ */
+public class ApproximateMathValidation {
+
+    //------------------//
+    //----- Fields -----//
+    //------------------//
+
+    private static final int N_SAMPLES = 2000000;
+
+    //-------------------//
+    //----- Methods -----//
+    //-------------------//
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            checkFunctions();
+        } else if (args.length == 2 || args.length == 3) {
+            OutputComparison.compare(args[0], args[1], (args.length == 3) ? Integer.parseInt(args[2]) : 0, "exact",
+                    "approximate");
+        } else {
+            System.out.println("Usage: ApproximateMathValidation [exactOutputFile approximateOutputFile [burnIn]]");
+        }
+    }
+
+    //----- Function checks -----//
+
+    private static void checkFunctions() {
+        Random random = new Random(0);
+        double [] x = new double[N_SAMPLES];
+        double [] y = new double[N_SAMPLES];
+        System.out.println("Function, range, max relative error, max absolute error, exact ns/call, approximate ns/call");
+        // Exponential, over the range of typical exponents (log prices and noise), and over its full reduced range
+        uniform(random, x, -50.0, 50.0);
+        checkFunction("exp", "[-50, 50]", x, null, Math::exp, ApproximateMath::exp);
+        uniform(random, x, -700.0, 700.0);
+        checkFunction("exp", "[-700, 700]", x, null, Math::exp, ApproximateMath::exp);
+        // Logarithm, over log-uniform positive numbers, and close to 1, where it vanishes
+        for (int i = 0; i < N_SAMPLES; i++) x[i] = Math.exp(-700.0 + 1400.0*random.nextDouble());
+        checkFunction("log", "[e^-700, e^700]", x, null, Math::log, ApproximateMath::log);
+        uniform(random, x, 0.99, 1.01);
+        checkFunction("log", "[0.99, 1.01]", x, null, Math::log, ApproximateMath::log);
+        // Power, as used for monthly probabilities from annual ones, and for mortgage annuity factors
+        uniform(random, x, 1e-6, 1.0);
+        Arrays.fill(y, 1.0/12.0);
+        checkFunction("pow", "[1e-6, 1]^(1/12)", x, y, null, null);
+        uniform(random, x, 1.0, 1.02);
+        Arrays.fill(y, -300.0);
+        checkFunction("pow", "[1, 1.02]^(-300)", x, y, null, null);
+        // Logistic function
+        uniform(random, x, -50.0, 50.0);
+        checkFunction("sigma", "[-50, 50]", x, null, z -> 1.0/(1.0 + Math.exp(-z)), ApproximateMath::sigma);
+    }
+
+    private static void uniform(Random random, double [] x, double min, double max) {
+        for (int i = 0; i < x.length; i++) x[i] = min + (max - min)*random.nextDouble();
+    }
+
+    /**
+     * Compare an approximate function with its exact version at the given arguments, or compare pow functions if
+     * second arguments y are given
+     */
+    private static void checkFunction(String name, String range, double [] x, double [] y, DoubleUnaryOperator exact,
+                                      DoubleUnaryOperator approximate) {
+        double [] exactValues = new double[x.length];
+        double [] approximateValues = new double[x.length];
+        // Time both versions, repeating to give the compiler a chance to optimise them
+        long exactTime = 0;
+        long approximateTime = 0;
+        for (int repetition = 0; repetition < 5; repetition++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < x.length; i++) {
+                exactValues[i] = (y == null) ? exact.applyAsDouble(x[i]) : Math.pow(x[i], y[i]);
+            }
+            exactTime = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int i = 0; i < x.length; i++) {
+                approximateValues[i] = (y == null) ? approximate.applyAsDouble(x[i])
+                        : ApproximateMath.pow(x[i], y[i]);
+            }
+            approximateTime = System.nanoTime() - start;
+        }
+        // Find maximum relative and absolute errors
+        double maxRelativeError = 0.0;
+        double maxAbsoluteError = 0.0;
+        for (int i = 0; i < x.length; i++) {
+            double absoluteError = Math.abs(approximateValues[i] - exactValues[i]);
+            maxAbsoluteError = Math.max(maxAbsoluteError, absoluteError);
+            if (exactValues[i] != 0.0) {
+                maxRelativeError = Math.max(maxRelativeError, absoluteError/Math.abs(exactValues[i]));
+            }
+        }
+        System.out.println(name + ", " + range + ", " + maxRelativeError + ", " + maxAbsoluteError + ", "
+                + (double)exactTime/x.length + ", " + (double)approximateTime/x.length);
+    }
+}
@@ -0,0 +1,126 @@
+package utilities;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ *  Comparison of the core outputs of two model runs, to be run from the command line, for validating modes of the
+ *  model which trade exact results for speed or memory (such as FAST_MATH or COMPACT_HOUSEHOLD_STATE) against a
+ *  reference run.
+ *
+ *  - With the addresses of two core output files (Output-run1.csv) of runs with the same configuration and seed, the
+ *    first one being the reference run and the second one the alternative run, and optionally a number of initial
+ *    time steps to discard, it compares the distributions over time of a set of key model outputs, reporting their
+ *    means and standard deviations in both runs, the relative difference between these means, and the two-sample
+ *    Kolmogorov-Smirnov statistic between both distributions. Note that, since any rounding changes the outcome of
+ *    some later decisions, individual trajectories soon diverge, and differences should be assessed against those
+ *    between two reference runs with different seeds
+ *
+ *  @author agent
+ */
+public class OutputComparison {
+
+    //------------------//
+    //----- Fields -----//
+    //------------------//
+
+    private static final String [] KEY_OUTPUTS = {"nHomeless", "nRenting", "nOwnerOccupier", "nActiveBTL",
+            "BTLStockFraction", "Sale HPI", "Sale AvSalePrice", "Sale AvMonthsOnMarket", "Sale nSales",
+            "Rental AvSalePrice", "Rental nSales", "Rental ExpAvFlowYield", "interestRate"};
+
+    //-------------------//
+    //----- Methods -----//
+    //-------------------//
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 2 || args.length == 3) {
+            compare(args[0], args[1], (args.length == 3) ? Integer.parseInt(args[2]) : 0, "reference", "alternative");
+        } else {
+            System.out.println("Usage: OutputComparison referenceOutputFile alternativeOutputFile [burnIn]");
+        }
+    }
+
+    /**
+     * Compare the key outputs of two core output files, using the given labels for both runs in the report
+     */
+    static void compare(String referenceFile, String alternativeFile, int burnIn, String referenceLabel,
+                        String alternativeLabel) throws IOException {
+        ArrayList<String> header = new ArrayList<>();
+        ArrayList<double []> referenceRows = readOutputFile(referenceFile, header);
+        ArrayList<double []> alternativeRows = readOutputFile(alternativeFile, new ArrayList<>());
+        System.out.println("Output, " + referenceLabel + " mean, " + referenceLabel + " std, " + alternativeLabel
+                + " mean, " + alternativeLabel + " std, relative mean difference, KS statistic");
+        for (String name : KEY_OUTPUTS) {
+            int column = header.indexOf(name);
+            if (column < 0) {
+                System.out.println("Strange: output " + name + " not found at " + referenceFile);
+                continue;
+            }
+            double [] reference = getColumn(referenceRows, column, burnIn);
+            double [] alternative = getColumn(alternativeRows, column, burnIn);
+            double referenceMean = mean(reference);
+            double alternativeMean = mean(alternative);
+            System.out.println(name + ", " + referenceMean + ", " + std(reference, referenceMean) + ", "
+                    + alternativeMean + ", " + std(alternative, alternativeMean) + ", "
+                    + ((referenceMean != 0.0) ? (alternativeMean - referenceMean)/Math.abs(referenceMean) : 0.0)
+                    + ", " + kolmogorovSmirnov(reference, alternative));
+        }
+    }
+
+    private static ArrayList<double []> readOutputFile(String fileName, ArrayList<String> header) throws IOException {
+        ArrayList<double []> rows = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(fileName))) {
+            String line = reader.readLine();
+            for (String name : line.split(",")) header.add(name.trim());
+            while ((line = reader.readLine()) != null) {
+                String [] fields = line.split(",");
+                double [] row = new double[fields.length];
+                for (int i = 0; i < fields.length; i++) row[i] = Double.parseDouble(fields[i].trim());
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    private static double [] getColumn(ArrayList<double []> rows, int column, int burnIn) {
+        double [] values = new double[Math.max(0, rows.size() - burnIn)];
+        for (int i = 0; i < values.length; i++) values[i] = rows.get(burnIn + i)[column];
+        return values;
+    }
+
+    private static double mean(double [] values) {
+        double sum = 0.0;
+        for (double value : values) sum += value;
+        return sum/values.length;
+    }
+
+    private static double std(double [] values, double mean) {
+        double sum = 0.0;
+        for (double value : values) sum += (value - mean)*(value - mean);
+        return Math.sqrt(sum/values.length);
+    }
+
+    /**
+     * Two-sample Kolmogorov-Smirnov statistic, i.e., maximum distance between the empirical cumulative distribution
+     * functions of both samples
+     */
+    private static double kolmogorovSmirnov(double [] a, double [] b) {
+        double [] sortedA = a.clone();
+        double [] sortedB = b.clone();
+        Arrays.sort(sortedA);
+        Arrays.sort(sortedB);
+        int i = 0;
+        int j = 0;
+        double maxDistance = 0.0;
+        while (i < sortedA.length && j < sortedB.length) {
+            double value = Math.min(sortedA[i], sortedB[j]);
+            while (i < sortedA.length && sortedA[i] == value) i++;
+            while (j < sortedB.length && sortedB[j] == value) j++;
+            maxDistance = Math.max(maxDistance, Math.abs((double)i/sortedA.length - (double)j/sortedB.length));
+        }
+        return maxDistance;
+    }
+}
@@ -0,0 +1,110 @@
+package utilities;
+
+import java.util.Arrays;
+
+/**
+ *  Utility class to represent a continuous piecewise linear function of a single variable as primitive tables of
+ *  breakpoints and of the slope and intercept of each linear segment, such that evaluating the function only requires a
+ *  search for the segment and a multiply-add. Functions are compiled from any exact evaluator together with a set of
+ *  breakpoints, provided the exact function is linear in between consecutive breakpoints, as well as below the first
+ *  and above the last one. Redundant breakpoints, where the function does not actually change slope, are dropped.
+ *
+ *  Note that results agree with the exact evaluator up to floating point rounding, but are not bit-for-bit identical.
+ *
+ *  @author agent
+ */
+public class PiecewiseLinearFunction {
+
+    //------------------//
+    //----- Fields -----//
+    //------------------//
+
+    private double []   breakpoints;    // Sorted breakpoints, with segment k covering [breakpoints[k-1], breakpoints[k])
+    private double []   slopes;         // Slope of each of the breakpoints.length + 1 segments
+    private double []   intercepts;     // Intercept of each of the breakpoints.length + 1 segments
+
+    //------------------------//
+    //----- Constructors -----//
+    //------------------------//
+
+    /**
+     * Compile the exact function into slope and intercept tables by evaluating it at every breakpoint, as well as at
+     * one point below the first and one point above the last breakpoint
+     *
+     * @param exactFunction Exact evaluator of the function, linear in between breakpoints
+     * @param candidateBreakpoints Points where the function may change slope, in any order and possibly repeated
+     */
+    public PiecewiseLinearFunction(DoubleUnaryOperator exactFunction, double [] candidateBreakpoints) {
+        // Sort and remove repeated breakpoints
+        double [] sorted = candidateBreakpoints.clone();
+        Arrays.sort(sorted);
+        int n = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) sorted[n++] = sorted[i];
+        }
+        breakpoints = Arrays.copyOf(sorted, n);
+        slopes = new double[n + 1];
+        intercepts = new double[n + 1];
+        // Evaluate the function at every breakpoint and at one point beyond each end
+        double [] x = new double[n + 2];
+        double [] y = new double[n + 2];
+        x[0] = breakpoints[0] - Math.max(1.0, Math.abs(breakpoints[0]));
+        x[n + 1] = breakpoints[n - 1] + Math.max(1.0, Math.abs(breakpoints[n - 1]));
+        System.arraycopy(breakpoints, 0, x, 1, n);
+        for (int i = 0; i < n + 2; i++) y[i] = exactFunction.applyAsDouble(x[i]);
+        // Then find the slope and intercept of each segment, merging any segment with the same slope as the previous one
+        // (up to floating point rounding) by dropping the breakpoint in between them
+        int m = 0;
+        for (int k = 0; k < n + 1; k++) {
+            double slope = (y[k + 1] - y[k])/(x[k + 1] - x[k]);
+            if (m > 0 && Math.abs(slope - slopes[m - 1]) <= 1e-12*Math.max(1.0, Math.abs(slope))) continue;
+            if (m > 0) breakpoints[m - 1] = x[k];
+            slopes[m] = slope;
+            intercepts[m] = y[k + 1] - slope*x[k + 1];
+            m++;
+        }
+        breakpoints = Arrays.copyOf(breakpoints, m - 1);
+        slopes = Arrays.copyOf(slopes, m);
+        intercepts = Arrays.copyOf(intercepts, m);
+    }
+
+    //-------------------//
+    //----- Methods -----//
+    //-------------------//
+
+    /**
+     * Scalar evaluation of the function
+     */
+    public double value(double x) {
+        int k = segmentOf(x);
+        return intercepts[k] + slopes[k]*x;
+    }
+
+    /**
+     * Batch evaluation of the function for the first n elements of an array, writing the results to another array,
+     * which can be the same as the input array
+     */
+    public void values(double [] x, double [] results, int n) {
+        for (int i = 0; i < n; i++) {
+            int k = segmentOf(x[i]);
+            results[i] = intercepts[k] + slopes[k]*x[i];
+        }
+    }
+
+    /**
+     * Binary search for the segment containing x, i.e., the number of breakpoints smaller than or equal to x
+     */
+    private int segmentOf(double x) {
+        int low = 0;
+        int high = breakpoints.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (breakpoints[mid] <= x) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
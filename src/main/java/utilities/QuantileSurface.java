@@ -0,0 +1,84 @@
+package utilities;
+
+/**
+ *  Utility class to precompute a 2D lookup surface of exponentiated quantiles, exp(F^-1(p)), for a set of binned
+ *  conditional distributions, such as the log-income distributions conditional on age. Rows correspond to the bins of
+ *  the conditioning variable, while columns correspond to equally spaced cumulative probability knots, with a given
+ *  refinement factor with respect to the inverse CDF samples of the Pdf objects. Values in between knots are found by
+ *  linear interpolation, thus avoiding any call to Math.exp.
+ *
+ *  Since the inverse CDF of a Pdf is itself linear between samples, and thus also between knots, the only error comes
+ *  from the linear interpolation of the exponential function. For a knot interval where the log-value changes by d, the
+ *  relative error of this interpolation is bounded by d^2/8*exp(d), with getMaxRelativeError returning this bound for
+ *  the widest knot interval in the surface. Note that this error decreases with the square of the refinement factor.
+ *
+ *  @author agent
+ */
+public class QuantileSurface {
+
+    //------------------//
+    //----- Fields -----//
+    //------------------//
+
+    private double [][] values;             // Exponentiated quantiles by row (bin) and cumulative probability knot
+    private int         nKnots;             // Number of cumulative probability knots, including 0 and 1
+    private double      maxRelativeError;   // Bound on the relative interpolation error of the whole surface
+
+    //------------------------//
+    //----- Constructors -----//
+    //------------------------//
+
+    /**
+     * @param data Binned data with a Pdf of log-values for each bin of the conditioning variable
+     * @param refinement Number of knot intervals per interval between inverse CDF samples
+     */
+    public QuantileSurface(BinnedData<Pdf> data, int refinement) {
+        values = new double[data.size()][];
+        nKnots = 0;
+        double maxStep = 0.0;
+        for (int row = 0; row < data.size(); row++) {
+            Pdf pdf = data.get(row);
+            if (nKnots == 0) {
+                nKnots = (pdf.nSamples - 1)*refinement + 1;
+            } else if (nKnots != (pdf.nSamples - 1)*refinement + 1) {
+                throw(new IllegalArgumentException("All distributions must have the same number of CDF samples"));
+            }
+            values[row] = new double[nKnots];
+            for (int k = 0; k < nKnots; k++) {
+                // Find the inverse CDF sample interval and the position of the knot within it...
+                int i = k/refinement;
+                double remainder = (double)(k%refinement)/refinement;
+                // ...and then the log-value at the knot, exactly as given by the linear inverse CDF
+                if (i == pdf.nSamples - 1) {
+                    values[row][k] = Math.exp(pdf.inverseCDF[i]);
+                } else {
+                    values[row][k] = Math.exp((1.0 - remainder)*pdf.inverseCDF[i] + remainder*pdf.inverseCDF[i + 1]);
+                    maxStep = Math.max(maxStep, Math.abs(pdf.inverseCDF[i + 1] - pdf.inverseCDF[i])/refinement);
+                }
+            }
+        }
+        maxRelativeError = maxStep*maxStep/8.0*Math.exp(maxStep);
+    }
+
+    //-------------------//
+    //----- Methods -----//
+    //-------------------//
+
+    /**
+     * Approximate exp(F^-1(p)) for the distribution at the given row
+     *
+     * @param row Index of the bin of the conditioning variable
+     * @param p Cumulative probability, in the interval [0,1)
+     */
+    public double getValue(int row, double p) {
+        if(p < 0.0 || p>=1.0) throw(new IllegalArgumentException("p must be in the interval [0,1)"));
+        int i = (int)(p*(nKnots - 1));
+        double remainder = p*(nKnots - 1) - i;
+        return (1.0 - remainder)*values[row][i] + remainder*values[row][i + 1];
+    }
+
+    /**
+     * @return Bound on the relative error of getValue with respect to exp(F^-1(p)), for any row and p
+     */
+    public double getMaxRelativeError() { return maxRelativeError; }
+}
@@ -0,0 +1,102 @@
+package housing;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**************************************************************************************************
+ * Household kernels using the Java Vector API (jdk.incubator.vector), processing as many
+ * households at once as doubles fit in the preferred vector size of the platform, and falling
+ * back on the scalar kernels for the remaining tail of each array. This class requires JDK 17 or
+ * later, and is only compiled by the jdk17-vector build profile, and running it requires the
+ * option --add-modules jdk.incubator.vector.
+ *
+ * @author agent
+ *
+ *************************************************************************************************/
+public class VectorHouseholdKernels extends HouseholdKernels {
+
+    //------------------//
+    //----- Fields -----//
+    //------------------//
+
+    private static final VectorSpecies<Double>  SPECIES = DoubleVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> INT_SPECIES = VectorSpecies.of(int.class,
+            VectorShape.forBitSize(32*SPECIES.length())); // Same number of lanes as SPECIES, for group indices
+
+    //-------------------//
+    //----- Methods -----//
+    //-------------------//
+
+    //----- Budget kernels -----//
+
+    @Override
+    public void addDisposableIncomes(double [] bankBalances, double [] incomesAfterHousing, double [] commutingFees,
+                                     int n) {
+        int bound = SPECIES.loopBound(n);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector income = DoubleVector.fromArray(SPECIES, incomesAfterHousing, i)
+                    .sub(DoubleVector.fromArray(SPECIES, commutingFees, i));
+            DoubleVector.fromArray(SPECIES, bankBalances, i).add(income).intoArray(bankBalances, i);
+        }
+        for (; i < n; i++) bankBalances[i] = bankBalances[i] + (incomesAfterHousing[i] - commutingFees[i]);
+    }
+
+    @Override
+    public void consume(double [] bankBalances, double [] desiredBankBalances, double consumptionFraction, int n,
+                        boolean [] bankrupt) {
+        int bound = SPECIES.loopBound(n);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector bankBalance = DoubleVector.fromArray(SPECIES, bankBalances, i);
+            DoubleVector excess = bankBalance.sub(DoubleVector.fromArray(SPECIES, desiredBankBalances, i)).max(0.0);
+            bankBalance = bankBalance.sub(excess.mul(consumptionFraction));
+            VectorMask<Double> isBankrupt = bankBalance.compare(VectorOperators.LT, 0.0);
+            isBankrupt.intoArray(bankrupt, i);
+            bankBalance.blend(1.0, isBankrupt).intoArray(bankBalances, i);
+        }
+        for (; i < n; i++) {
+            double bankBalance = bankBalances[i]
+                    - consumptionFraction*Math.max(bankBalances[i] - desiredBankBalances[i], 0.0);
+            bankrupt[i] = bankBalance < 0.0;
+            bankBalances[i] = bankrupt[i] ? 1.0 : bankBalance;
+        }
+    }
+
+    //----- Statistics kernels -----//
+
+    @Override
+    public double sum(double [] values, int n) {
+        int bound = SPECIES.loopBound(n);
+        DoubleVector sums = DoubleVector.zero(SPECIES);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) sums = sums.add(DoubleVector.fromArray(SPECIES, values, i));
+        double sum = sums.reduceLanes(VectorOperators.ADD);
+        for (; i < n; i++) sum += values[i];
+        return sum;
+    }
+
+    /**
+     * Masked sums, one pass per group, as there are only a handful of them
+     */
+    @Override
+    public void sumByGroup(int [] groups, double [] values, int n, double [] sums) {
+        int bound = SPECIES.loopBound(n);
+        for (int group = 0; group < sums.length; group++) {
+            DoubleVector groupSums = DoubleVector.zero(SPECIES);
+            int i = 0;
+            for (; i < bound; i += SPECIES.length()) {
+                VectorMask<Double> inGroup = IntVector.fromArray(INT_SPECIES, groups, i)
+                        .compare(VectorOperators.EQ, group).cast(SPECIES);
+                groupSums = groupSums.add(DoubleVector.fromArray(SPECIES, values, i), inGroup);
+            }
+            double sum = groupSums.reduceLanes(VectorOperators.ADD);
+            for (; i < n; i++) if (groups[i] == group) sum += values[i];
+            sums[group] += sum;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package housing;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**************************************************************************************************
+ * Tests for Demographics, stepping only births and deaths of the calibrated population, without
+ * any markets, and checking the living population against the expected age distribution and the
+ * reuse of deceased households for newborns.
+ *
+ * @author agent
+ *
+ *************************************************************************************************/
+public class DemographicsTest {
+
+    private static final int N_STEPS = 240;
+
+    @Test
+    public void recyclesDeceasedHouseholdsAsNewborns() {
+        Demographics demographics = newDemographics(false);
+        Set<Household> households = Collections.newSetFromMap(new IdentityHashMap<>());
+        Set<Integer> ids = new HashSet<>();
+        int maxPopulation = 0;
+        int maxMonthlyBirths = 0; // After the initial population is born
+        for (Model.t = 0; Model.t < N_STEPS; Model.t++) {
+            demographics.step();
+            ArrayList<Household> living = getLivingHouseholds();
+            maxPopulation = Math.max(maxPopulation, living.size());
+            int births = ids.size();
+            boolean [] rows = new boolean[demographics.getHouseholdTable().size()];
+            for (Household h : living) {
+                households.add(h);
+                ids.add(h.id);
+                // Every living household, whether newly built or recycled, holds its own row and a fresh state
+                assertTrue(h.row >= 0 && h.row < rows.length && !rows[h.row]);
+                rows[h.row] = true;
+                assertTrue(h.getHousePayments().isEmpty());
+                assertNull(h.getHome());
+                assertTrue(h.getAgeBand() >= 0 && h.getAgeBand() < data.Demographics.getMonthlyAgeDistributionSize());
+            }
+            assertEquals(living.size(), demographics.getHouseholdTable().size());
+            if (Model.t > 0) maxMonthlyBirths = Math.max(maxMonthlyBirths, ids.size() - births);
+        }
+        // Many more households have been born than ever lived at the same time, but storage has only been created for
+        // the peak population plus, at most, the births of a single month
+        assertTrue(ids.size() > maxPopulation + 10*maxMonthlyBirths);
+        assertTrue(households.size() <= maxPopulation + maxMonthlyBirths);
+    }
+
+    @Test
+    public void rosterSamplingMatchesExpectedAgeDistribution() {
+        Demographics demographics = newDemographics(true);
+        int nBands = data.Demographics.getMonthlyAgeDistributionSize();
+        ArrayList<Household> previous = new ArrayList<>();
+        for (Model.t = 0; Model.t < N_STEPS; Model.t++) {
+            // Households alive last month, by the age band they move into this month, found before any of them dies
+            int [] previousBands = new int[previous.size()];
+            int [] agedPerBand = new int[nBands + 1];
+            for (int j = 0; j < previous.size(); j++) {
+                previousBands[j] = Math.min(previous.get(j).getAgeBand(), nBands);
+                agedPerBand[previousBands[j]]++;
+            }
+            demographics.step();
+            ArrayList<Household> living = getLivingHouseholds();
+            Set<Household> alive = Collections.newSetFromMap(new IdentityHashMap<>());
+            alive.addAll(living);
+            // Every age band holds exactly its expected number of households, with none left past the last band
+            int [] householdsPerBand = new int[nBands];
+            for (Household h : living) {
+                assertTrue(h.getAgeBand() < nBands);
+                householdsPerBand[h.getAgeBand()]++;
+            }
+            for (int i = 0; i < nBands; i++) {
+                assertEquals(data.Demographics.getExpectedHouseholdsForAgeBand(i), householdsPerBand[i]);
+            }
+            assertEquals(living.size(), demographics.getTotalPopulation());
+            // Deaths only happen in bands with more households than expected, and in as many as the excess
+            int [] survivorsPerBand = new int[nBands];
+            for (int j = 0; j < previous.size(); j++) {
+                int i = previousBands[j];
+                if (alive.contains(previous.get(j))) {
+                    survivorsPerBand[i]++;
+                } else {
+                    assertTrue(i >= nBands || agedPerBand[i] > data.Demographics.getExpectedHouseholdsForAgeBand(i));
+                }
+            }
+            for (int i = 0; i < nBands; i++) {
+                assertEquals(Math.min(agedPerBand[i], data.Demographics.getExpectedHouseholdsForAgeBand(i)),
+                        survivorsPerBand[i]);
+            }
+            previous = living;
+        }
+    }
+
+    /**
+     * Create the whole model from the default configuration, then initialise only its regions and demographics
+     */
+    static Demographics newDemographics(boolean sampleDeathsFromRosters) {
+        new Model(GovernmentTest.CONFIG_FILE, "target/test-output/");
+        Model.config.SAMPLE_DEATHS_FROM_ROSTERS = sampleDeathsFromRosters;
+        Model.geography.init();
+        Model.demographics.init();
+        return Model.demographics;
+    }
+
+    static ArrayList<Household> getLivingHouseholds() {
+        ArrayList<Household> living = new ArrayList<>();
+        for (Region region : Model.geography.getRegions()) living.addAll(region.households);
+        return living;
+    }
+}
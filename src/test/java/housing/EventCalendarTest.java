@@ -0,0 +1,84 @@
+package housing;
+
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**************************************************************************************************
+ * Tests for EventCalendar, checking that events fire exactly at their due month, also when due
+ * several turns of the wheel away or sharing a bucket with events due at other turns, and that
+ * their types and stamps are passed back to their households unchanged.
+ *
+ * @author agent
+ *
+ *************************************************************************************************/
+public class EventCalendarTest {
+
+    private static final int WHEEL_MONTHS = 512;
+
+    /**
+     * Household recording the events it is woken up with, as month, type and stamp triplets
+     */
+    private static class RecordingHousehold extends Household {
+        ArrayList<int []> wakes = new ArrayList<>();
+
+        RecordingHousehold() { super(null, null, null, null); }
+
+        @Override
+        void wake(int month, int type, int stamp) { wakes.add(new int[] {month, type, stamp}); }
+    }
+
+    @Test
+    public void firesEventsOnlyAtTheirDueMonthAcrossWheelTurns() {
+        EventCalendar calendar = new EventCalendar();
+        RecordingHousehold household = new RecordingHousehold();
+        // Three events sharing the same bucket, due at different turns of the wheel, scheduled out of order
+        int month = 7;
+        calendar.schedule(month + 2*WHEEL_MONTHS, EventCalendar.MORTGAGE_MATURITY, household, 0);
+        calendar.schedule(month, EventCalendar.TENANCY_END, household, 3);
+        calendar.schedule(month + WHEEL_MONTHS, EventCalendar.HOME_SALE, household, month + WHEEL_MONTHS);
+        for (int t = 0; t <= month + 3*WHEEL_MONTHS; t++) calendar.fire(t);
+        assertEquals(3, household.wakes.size());
+        assertArrayEquals(new int[] {month, EventCalendar.TENANCY_END, 3}, household.wakes.get(0));
+        assertArrayEquals(new int[] {month + WHEEL_MONTHS, EventCalendar.HOME_SALE, month + WHEEL_MONTHS},
+                household.wakes.get(1));
+        assertArrayEquals(new int[] {month + 2*WHEEL_MONTHS, EventCalendar.MORTGAGE_MATURITY, 0},
+                household.wakes.get(2));
+    }
+
+    @Test
+    public void firesEveryEventOfAFullBucketOnce() {
+        EventCalendar calendar = new EventCalendar();
+        // More events than the initial capacity of a bucket, alternating between two turns of the wheel
+        RecordingHousehold [] households = new RecordingHousehold[100];
+        for (int i = 0; i < households.length; i++) {
+            households[i] = new RecordingHousehold();
+            calendar.schedule(30 + (i % 2)*WHEEL_MONTHS, EventCalendar.TENANCY_END, households[i], i);
+        }
+        calendar.fire(30);
+        for (int i = 0; i < households.length; i++) {
+            assertEquals(1 - i % 2, households[i].wakes.size());
+        }
+        calendar.fire(30); // Firing the same month again finds nothing left to fire
+        calendar.fire(30 + WHEEL_MONTHS);
+        for (int i = 0; i < households.length; i++) {
+            assertEquals(1, households[i].wakes.size());
+            assertArrayEquals(new int[] {30 + (i % 2)*WHEEL_MONTHS, EventCalendar.TENANCY_END, i},
+                    households[i].wakes.get(0));
+        }
+    }
+
+    @Test
+    public void clearRemovesAllEvents() {
+        EventCalendar calendar = new EventCalendar();
+        RecordingHousehold household = new RecordingHousehold();
+        calendar.schedule(0, EventCalendar.TENANCY_END, household, 1);
+        calendar.schedule(WHEEL_MONTHS - 1, EventCalendar.HOME_SALE, household, 2);
+        calendar.schedule(5*WHEEL_MONTHS, EventCalendar.MORTGAGE_MATURITY, household, 0);
+        calendar.clear();
+        for (int t = 0; t <= 5*WHEEL_MONTHS; t++) calendar.fire(t);
+        assertTrue(household.wakes.isEmpty());
+    }
+}
@@ -0,0 +1,59 @@
+package housing;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**************************************************************************************************
+ * Tests for Government, checking that income tax and NICs compiled into tables agree with the
+ * exact banded computation for the calibrated bands and rates, and that batch computations give
+ * the same results as scalar ones, with and without tables.
+ *
+ * @author agent
+ *
+ *************************************************************************************************/
+public class GovernmentTest {
+
+    static final String CONFIG_FILE = "src/main/resources/config.properties";
+
+    @Test
+    public void taxTablesMatchExactComputation() {
+        Government exact = newGovernment(false);
+        Government tables = newGovernment(true);
+        Random random = new Random(0);
+        for (int i = 0; i < 100000; i++) {
+            double income = (i < 50000) ? 200000.0*random.nextDouble() : 2000000.0*random.nextDouble();
+            double tolerance = 1e-9*Math.max(1.0, income);
+            assertEquals(exact.incomeTaxDue(income), tables.incomeTaxDue(income), tolerance);
+            assertEquals(exact.class1NICsDue(income), tables.class1NICsDue(income), tolerance);
+        }
+    }
+
+    @Test
+    public void batchMatchesScalarComputation() {
+        for (boolean useTables : new boolean[] {false, true}) {
+            Government government = newGovernment(useTables);
+            Random random = new Random(1);
+            double [] incomes = new double[1000];
+            for (int i = 0; i < incomes.length; i++) incomes[i] = 200000.0*random.nextDouble();
+            double [] incomeTaxes = new double[incomes.length];
+            double [] class1NICs = new double[incomes.length];
+            government.incomeTaxDue(incomes, incomeTaxes, incomes.length);
+            government.class1NICsDue(incomes, class1NICs, incomes.length);
+            for (int i = 0; i < incomes.length; i++) {
+                assertEquals(government.incomeTaxDue(incomes[i]), incomeTaxes[i], 0.0);
+                assertEquals(government.class1NICsDue(incomes[i]), class1NICs[i], 0.0);
+            }
+        }
+    }
+
+    private static Government newGovernment(boolean useTaxTables) {
+        // Calibration data classes read their file addresses from the Model's configuration
+        if (Model.config == null) Model.config = new Config(CONFIG_FILE);
+        Config config = new Config(CONFIG_FILE);
+        config.GOVERNMENT_TAX_TABLES = useTaxTables;
+        return new Government(config);
+    }
+}
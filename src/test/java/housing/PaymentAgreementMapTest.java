@@ -0,0 +1,121 @@
+package housing;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**************************************************************************************************
+ * Tests for PaymentAgreementMap, checking that entries stay in house id order, whatever the order
+ * in which they are added or removed, both while kept in inline fields and once moved to arrays,
+ * by comparison with a TreeMap holding the same entries.
+ *
+ * @author agent
+ *
+ *************************************************************************************************/
+public class PaymentAgreementMapTest {
+
+    @Test
+    public void keepsHouseIdOrderAcrossSwitchToArrays() {
+        ArrayList<House> houses = newHouses(6);
+        Collections.reverse(houses);
+        PaymentAgreementMap<PaymentAgreement> map = new PaymentAgreementMap<>();
+        TreeMap<House, PaymentAgreement> expected = new TreeMap<>();
+        for (House house : houses) {
+            PaymentAgreement agreement = new PaymentAgreement();
+            map.put(house, agreement);
+            expected.put(house, agreement);
+            assertSameEntries(expected, map);
+        }
+        // Removing entries down to inline size keeps using the arrays, and must keep the order too
+        while (!expected.isEmpty()) {
+            House house = houses.remove(houses.size() / 2);
+            map.remove(house);
+            expected.remove(house);
+            assertSameEntries(expected, map);
+        }
+    }
+
+    @Test
+    public void replacesAgreementOfHouseAlreadyInMap() {
+        ArrayList<House> houses = newHouses(3);
+        PaymentAgreementMap<PaymentAgreement> map = new PaymentAgreementMap<>();
+        for (House house : houses) map.put(house, new PaymentAgreement());
+        PaymentAgreement agreement = new PaymentAgreement();
+        map.put(houses.get(1), agreement);
+        assertEquals(3, map.size());
+        assertSame(agreement, map.get(houses.get(1)));
+    }
+
+    @Test
+    public void removeAtVisitsRemainingEntriesInOrder() {
+        ArrayList<House> houses = newHouses(5);
+        PaymentAgreementMap<PaymentAgreement> map = new PaymentAgreementMap<>();
+        for (House house : houses) map.put(house, new PaymentAgreement());
+        // Remove every other entry while iterating by position, as households do when agreements end
+        ArrayList<House> visited = new ArrayList<>();
+        boolean remove = true;
+        for (int i = 0; i < map.size();) {
+            visited.add(map.getHouse(i));
+            if (remove) {
+                map.removeAt(i);
+            } else {
+                i++;
+            }
+            remove = !remove;
+        }
+        assertEquals(houses, visited);
+        assertEquals(2, map.size());
+        assertSame(houses.get(1), map.getHouse(0));
+        assertSame(houses.get(3), map.getHouse(1));
+    }
+
+    @Test
+    public void matchesTreeMapUnderRandomOperations() {
+        Random random = new Random(0);
+        ArrayList<House> houses = newHouses(12);
+        PaymentAgreementMap<PaymentAgreement> map = new PaymentAgreementMap<>();
+        TreeMap<House, PaymentAgreement> expected = new TreeMap<>();
+        for (int step = 0; step < 10000; step++) {
+            House house = houses.get(random.nextInt(houses.size()));
+            int operation = random.nextInt(4);
+            if (operation < 2) {
+                PaymentAgreement agreement = new PaymentAgreement();
+                map.put(house, agreement);
+                expected.put(house, agreement);
+            } else if (operation == 2) {
+                map.remove(house);
+                expected.remove(house);
+            } else if (step % 100 == 0) {
+                map.clear();
+                expected.clear();
+            }
+            assertEquals(expected.containsKey(house), map.containsKey(house));
+            assertSame(expected.get(house), map.get(house));
+            assertSameEntries(expected, map);
+        }
+    }
+
+    private static ArrayList<House> newHouses(int n) {
+        ArrayList<House> houses = new ArrayList<>();
+        for (int i = 0; i < n; i++) houses.add(new House(null, 0));
+        return houses;
+    }
+
+    private static void assertSameEntries(TreeMap<House, PaymentAgreement> expected,
+                                          PaymentAgreementMap<PaymentAgreement> map) {
+        assertEquals(expected.size(), map.size());
+        assertEquals(expected.isEmpty(), map.isEmpty());
+        int i = 0;
+        for (Map.Entry<House, PaymentAgreement> entry : expected.entrySet()) {
+            assertSame(entry.getKey(), map.getHouse(i));
+            assertSame(entry.getValue(), map.getAgreement(i));
+            i++;
+        }
+    }
+}
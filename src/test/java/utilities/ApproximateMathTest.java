@@ -0,0 +1,88 @@
+package utilities;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ *  Tests for ApproximateMath, checking the error bounds given in its documentation over random arguments, as well as
+ *  the fallbacks on the exact functions outside the approximated ranges.
+ *
+ *  @author agent
+ */
+public class ApproximateMathTest {
+
+    private static final int N_SAMPLES = 1000000;
+
+    @Test
+    public void expWithinRelativeBound() {
+        Random random = new Random(0);
+        for (int i = 0; i < N_SAMPLES; i++) {
+            double x = (i % 2 == 0) ? -50.0 + 100.0*random.nextDouble() : -699.9 + 1399.8*random.nextDouble();
+            assertRelativeError("exp", x, Math.exp(x), ApproximateMath.exp(x), 2e-13);
+        }
+    }
+
+    @Test
+    public void logWithinAbsoluteBoundNearOneAndRelativeBoundElsewhere() {
+        Random random = new Random(1);
+        for (int i = 0; i < N_SAMPLES; i++) {
+            double x = (i % 2 == 0) ? Math.exp(-700.0 + 1400.0*random.nextDouble()) : 0.99 + 0.02*random.nextDouble();
+            double exact = Math.log(x);
+            if (Math.abs(exact) < 1.0) {
+                assertEquals("log(" + x + ")", exact, ApproximateMath.log(x), 6e-15);
+            } else {
+                assertRelativeError("log", x, exact, ApproximateMath.log(x), 5e-15);
+            }
+        }
+    }
+
+    @Test
+    public void powWithinRelativeBound() {
+        Random random = new Random(2);
+        for (int i = 0; i < N_SAMPLES; i++) {
+            double x;
+            double y;
+            if (i % 2 == 0) {
+                x = 1e-6 + (1.0 - 1e-6)*random.nextDouble(); // Monthly probabilities from annual ones
+                y = 1.0/12.0;
+            } else {
+                x = 1.0 + 0.02*random.nextDouble(); // Mortgage annuity factors
+                y = -300.0;
+            }
+            double bound = Math.abs(y*Math.log(x))*5e-15 + Math.abs(y)*6e-15 + 2e-13;
+            assertRelativeError("pow", x, Math.pow(x, y), ApproximateMath.pow(x, y), bound);
+        }
+    }
+
+    @Test
+    public void sigmaWithinRelativeBound() {
+        Random random = new Random(3);
+        for (int i = 0; i < N_SAMPLES; i++) {
+            double x = -50.0 + 100.0*random.nextDouble();
+            assertRelativeError("sigma", x, 1.0/(1.0 + Math.exp(-x)), ApproximateMath.sigma(x), 2e-13);
+        }
+    }
+
+    @Test
+    public void fallsBackOnExactFunctionsOutsideApproximatedRanges() {
+        for (double x : new double[] {-1000.0, -700.0, 700.0, 1000.0, Double.NEGATIVE_INFINITY,
+                Double.POSITIVE_INFINITY, Double.NaN}) {
+            assertEquals(Math.exp(x), ApproximateMath.exp(x), 0.0);
+        }
+        for (double x : new double[] {-1.0, 0.0, Double.MIN_VALUE, Math.nextDown(Double.MIN_NORMAL),
+                Double.POSITIVE_INFINITY, Double.NaN}) {
+            assertEquals(Math.log(x), ApproximateMath.log(x), 0.0);
+        }
+        for (double x : new double[] {-2.0, 0.0}) assertEquals(Math.pow(x, 3.0), ApproximateMath.pow(x, 3.0), 0.0);
+        assertEquals(1.0, ApproximateMath.exp(0.0), 0.0);
+    }
+
+    private static void assertRelativeError(String function, double x, double exact, double approximate,
+                                            double bound) {
+        double error = Math.abs(approximate - exact)/Math.abs(exact);
+        if (!(error <= bound)) fail(function + "(" + x + ") has relative error " + error + ", above " + bound);
+    }
+}
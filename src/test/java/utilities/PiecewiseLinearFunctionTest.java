@@ -0,0 +1,92 @@
+package utilities;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ *  Tests for PiecewiseLinearFunction, checking compiled tables against a banded tax computation, with the same loop
+ *  over bands as Government, including a personal allowance taper, as well as the batch against the scalar evaluation.
+ *
+ *  @author agent
+ */
+public class PiecewiseLinearFunctionTest {
+
+    private static final double [] BANDS = {0.0, 37500.0, 150000.0};
+    private static final double [] RATES = {0.2, 0.4, 0.45};
+    private static final double ALLOWANCE = 12500.0;
+    private static final double LIMIT = 100000.0;
+
+    @Test
+    public void matchesBandedComputation() {
+        PiecewiseLinearFunction function = new PiecewiseLinearFunction(PiecewiseLinearFunctionTest::bandedTax,
+                taxBreakpoints());
+        Random random = new Random(0);
+        for (int i = 0; i < 100000; i++) {
+            double income = 400000.0*random.nextDouble() - 10000.0;
+            assertEquals(bandedTax(income), function.value(income), 1e-9*Math.max(1.0, Math.abs(income)));
+        }
+        for (double x : taxBreakpoints()) {
+            assertEquals(bandedTax(x), function.value(x), 1e-9*Math.max(1.0, x));
+            assertEquals(bandedTax(Math.nextUp(x)), function.value(Math.nextUp(x)), 1e-9*Math.max(1.0, x));
+        }
+    }
+
+    @Test
+    public void ignoresBreakpointOrderRepeatsAndRedundantBreakpoints() {
+        DoubleUnaryOperator exact = x -> Math.max(0.0, x - 10.0) + 2.0*Math.max(0.0, x - 20.0);
+        PiecewiseLinearFunction function = new PiecewiseLinearFunction(exact,
+                new double[] {20.0, 15.0, 10.0, 20.0, 5.0});
+        for (double x = -50.0; x <= 50.0; x += 0.25) assertEquals(exact.applyAsDouble(x), function.value(x), 1e-12);
+    }
+
+    @Test
+    public void batchMatchesScalarEvaluation() {
+        PiecewiseLinearFunction function = new PiecewiseLinearFunction(PiecewiseLinearFunctionTest::bandedTax,
+                taxBreakpoints());
+        Random random = new Random(1);
+        double [] x = new double[1000];
+        for (int i = 0; i < x.length; i++) x[i] = 300000.0*random.nextDouble();
+        double [] results = new double[x.length];
+        int n = x.length - 10; // Elements beyond n must be left untouched
+        function.values(x, results, n);
+        for (int i = 0; i < n; i++) assertEquals(function.value(x[i]), results[i], 0.0);
+        for (int i = n; i < x.length; i++) assertEquals(0.0, results[i], 0.0);
+        // Results can be written to the input array itself
+        double [] inPlace = x.clone();
+        function.values(inPlace, inPlace, n);
+        for (int i = 0; i < n; i++) assertEquals(results[i], inPlace[i], 0.0);
+    }
+
+    /**
+     * Income tax with a personal allowance tapered by 1 for every 2 of income above the limit, computed as in
+     * Government, charging the relative rate of each band to any income above its threshold
+     */
+    private static double bandedTax(double income) {
+        double allowance = ALLOWANCE;
+        if (income > LIMIT) allowance = Math.max(allowance - (income - LIMIT)/2.0, 0.0);
+        int i = 0;
+        double lastRate = 0.0;
+        double tax = 0.0;
+        while (i < BANDS.length && income > (BANDS[i] + allowance)) {
+            tax += (income - (BANDS[i] + allowance))*(RATES[i] - lastRate);
+            lastRate = RATES[i];
+            ++i;
+        }
+        return tax;
+    }
+
+    private static double [] taxBreakpoints() {
+        double [] breakpoints = new double[2 + 3*BANDS.length];
+        breakpoints[0] = LIMIT;
+        breakpoints[1] = LIMIT + 2.0*ALLOWANCE;
+        for (int i = 0; i < BANDS.length; i++) {
+            breakpoints[2 + 3*i] = BANDS[i] + ALLOWANCE;
+            breakpoints[3 + 3*i] = (2.0*(BANDS[i] + ALLOWANCE) + LIMIT)/3.0;
+            breakpoints[4 + 3*i] = BANDS[i];
+        }
+        return breakpoints;
+    }
+}